@@ -14,7 +14,6 @@ import com.radixdlt.client.core.RadixUniverse;
 import com.radixdlt.client.core.address.RadixAddress;
 import com.radixdlt.client.core.atoms.ApplicationPayloadAtom;
 import com.radixdlt.client.core.atoms.AtomBuilder;
-import com.radixdlt.client.core.atoms.Consumable;
 import com.radixdlt.client.core.atoms.TransactionAtom;
 import com.radixdlt.client.application.identity.RadixIdentity;
 import com.radixdlt.client.core.crypto.ECPublicKey;
@@ -23,12 +22,13 @@ import com.radixdlt.client.core.network.AtomSubmissionUpdate;
 import com.radixdlt.client.core.network.AtomSubmissionUpdate.AtomSubmissionState;
 import com.radixdlt.client.application.translate.ConsumableDataSource;
 import com.radixdlt.client.application.translate.TransactionAtoms;
+import io.reactivex.BackpressureStrategy;
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.annotations.Nullable;
 import io.reactivex.observables.ConnectableObservable;
-import java.util.Collection;
 import java.util.Objects;
 import java.util.function.Supplier;
 
@@ -167,6 +167,23 @@ public class RadixApplicationAPI {
 		.flatMap(atoms -> atoms.map(tokenTransferTranslator::fromAtom));
 	}
 
+	/**
+	 * Returns the token transfers of an address as a backpressured stream, for consumers
+	 * which may fall behind the network. Every atom still goes through the transaction
+	 * state, only the resulting transfers are subject to the strategy, so e.g.
+	 * {@link BackpressureStrategy#LATEST} skips transfers but never corrupts the balance.
+	 *
+	 * @param address address to get the token transfers of
+	 * @param tokenClass token to get the transfers of
+	 * @param strategy what to do with transfers the subscriber is not ready for
+	 * @return flowable of token transfers
+	 */
+	public Flowable<TokenTransfer> getTokenTransfers(RadixAddress address, Asset tokenClass, BackpressureStrategy strategy) {
+		Objects.requireNonNull(strategy);
+
+		return getTokenTransfers(address, tokenClass).toFlowable(strategy);
+	}
+
 	public Observable<Amount> getMyBalance(Asset tokenClass) {
 		return getBalance(getMyAddress(), tokenClass);
 	}
@@ -175,13 +192,8 @@ public class RadixApplicationAPI {
 		Objects.requireNonNull(address);
 		Objects.requireNonNull(tokenClass);
 
-		return this.consumableDataSource.getConsumables(address)
-			.map(Collection::stream)
-			.map(stream -> stream
-				.filter(consumable -> consumable.getAssetId().equals(tokenClass.getId()))
-				.mapToLong(Consumable::getQuantity)
-				.sum()
-			)
+		return this.consumableDataSource.getBalances(address)
+			.map(balances -> balances.getOrDefault(tokenClass.getId(), 0L))
 			.map(balanceInSubUnits -> Amount.subUnitsOf(balanceInSubUnits, tokenClass))
 			.share();
 	}
@@ -0,0 +1,112 @@
+package com.radixdlt.client.application.translate;
+
+import com.radixdlt.client.core.atoms.Consumable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Searches for consumables adding up to exactly the amount, so that the transfer needs no
+ * change, preferring the fewest inputs. The search is a depth first walk over the
+ * consumables, largest first, cut short where the remaining ones cannot reach the amount
+ * and stopped after a bounded number of steps. If no exact match is found the choice is
+ * left to a fallback selector.
+ */
+public class BranchAndBoundCoinSelector implements CoinSelector {
+	private static final int DEFAULT_MAX_TRIES = 100_000;
+
+	/**
+	 * Number of largest consumables not above the amount which are searched through,
+	 * which also bounds the depth of the search
+	 */
+	private static final int MAX_CANDIDATES = 1_000;
+
+	private final int maxTries;
+	private final CoinSelector fallback;
+
+	public BranchAndBoundCoinSelector() {
+		this(DEFAULT_MAX_TRIES, new LargestFirstCoinSelector());
+	}
+
+	/**
+	 * @param maxTries maximum number of search steps before giving up on an exact match
+	 * @param fallback selector used when no exact match is found
+	 */
+	public BranchAndBoundCoinSelector(int maxTries, CoinSelector fallback) {
+		if (maxTries < 1) {
+			throw new IllegalArgumentException("Must try at least once: " + maxTries);
+		}
+
+		this.maxTries = maxTries;
+		this.fallback = fallback;
+	}
+
+	private static class Search {
+		private final List<Consumable> sorted;
+		private final long[] remaining;
+		private final boolean[] chosen;
+		private boolean[] best;
+		private int bestCount = Integer.MAX_VALUE;
+		private int tries;
+
+		private Search(List<Consumable> sorted, int tries) {
+			this.sorted = sorted;
+			this.remaining = new long[sorted.size() + 1];
+			for (int i = sorted.size() - 1; i >= 0; i--) {
+				remaining[i] = remaining[i + 1] + sorted.get(i).getQuantity();
+			}
+			this.chosen = new boolean[sorted.size()];
+			this.tries = tries;
+		}
+
+		private void search(int index, long left, int count) {
+			if (left == 0) {
+				if (count < bestCount) {
+					bestCount = count;
+					best = chosen.clone();
+				}
+				return;
+			}
+
+			// Out of tries, out of consumables, or not enough left to reach the amount
+			if (--tries < 0 || index == sorted.size() || remaining[index] < left || count + 1 >= bestCount) {
+				return;
+			}
+
+			final long quantity = sorted.get(index).getQuantity();
+			if (quantity <= left) {
+				chosen[index] = true;
+				search(index + 1, left - quantity, count + 1);
+				chosen[index] = false;
+			}
+			search(index + 1, left, count);
+		}
+	}
+
+	@Override
+	public Optional<List<Consumable>> select(Collection<Consumable> available, long amount) {
+		// Consumables larger than the amount can never be part of an exact match
+		final List<Consumable> sorted = available.stream()
+			.filter(consumable -> consumable.getQuantity() <= amount)
+			.sorted(Comparator.comparingLong(Consumable::getQuantity).reversed())
+			.limit(MAX_CANDIDATES)
+			.collect(Collectors.toList());
+
+		final Search search = new Search(sorted, maxTries);
+		search.search(0, amount, 0);
+		if (search.best == null) {
+			return fallback.select(available, amount);
+		}
+
+		final List<Consumable> selected = new ArrayList<>(search.bestCount);
+		for (int i = 0; i < sorted.size(); i++) {
+			if (search.best[i]) {
+				selected.add(sorted.get(i));
+			}
+		}
+		return Optional.of(selected);
+	}
+}
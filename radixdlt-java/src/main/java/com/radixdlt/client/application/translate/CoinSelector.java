@@ -0,0 +1,21 @@
+package com.radixdlt.client.application.translate;
+
+import com.radixdlt.client.core.atoms.Consumable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Chooses which unconsumed consumables to spend on a transfer. Every consumable chosen
+ * becomes a consumer in the transaction atom, so fewer inputs mean a smaller atom with
+ * fewer signatures to check.
+ */
+public interface CoinSelector {
+	/**
+	 * @param available unconsumed consumables of the asset being transferred
+	 * @param amount amount to transfer in sub units
+	 * @return consumables adding up to at least the amount, or empty if the available
+	 * consumables do not add up to the amount
+	 */
+	Optional<List<Consumable>> select(Collection<Consumable> available, long amount);
+}
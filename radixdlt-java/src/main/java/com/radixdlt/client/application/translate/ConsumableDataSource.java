@@ -1,42 +1,176 @@
 package com.radixdlt.client.application.translate;
 
-import com.radixdlt.client.assets.Asset;
+import com.radixdlt.client.core.address.EUID;
 import com.radixdlt.client.core.address.RadixAddress;
 import com.radixdlt.client.core.atoms.Consumable;
 import com.radixdlt.client.core.atoms.TransactionAtom;
 import com.radixdlt.client.core.ledger.RadixLedger;
+import com.radixdlt.client.core.util.LruMap;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ConsumableDataSource {
+	/**
+	 * History is considered caught up with once no atoms arrived for this long, should the
+	 * end of history not have been seen by then
+	 */
+	private static final long CATCH_UP_QUIET_MILLIS = 1_000;
+
+	private static final int MAX_COALESCED_CHANGES = 1_000;
+
+	/**
+	 * How long the state of an address is kept up to date after its last subscriber left
+	 */
+	private static final long IDLE_EVICTION_SECONDS = 30;
+	private static final int MAX_CACHED_ADDRESSES = 10_000;
+
 	private final RadixLedger ledger;
-	private final ConcurrentHashMap<RadixAddress, Observable<Collection<Consumable>>> cache = new ConcurrentHashMap<>();
+	private final long coalesceMillis;
+
+	/**
+	 * Shared state per address, least recently used first. Addresses pushed out while still
+	 * subscribed to stay connected until their subscribers leave.
+	 */
+	private final Map<RadixAddress, Observable<TransactionAtoms>> cache = new LruMap<>(MAX_CACHED_ADDRESSES);
 
 	public ConsumableDataSource(RadixLedger ledger) {
+		this(ledger, 0);
+	}
+
+	/**
+	 * @param ledger ledger to read atoms from
+	 * @param coalesceMillis once history is caught up with, changes within this many
+	 * milliseconds are emitted as one snapshot, or 0 to emit every change straight away
+	 */
+	public ConsumableDataSource(RadixLedger ledger, long coalesceMillis) {
+		if (coalesceMillis < 0) {
+			throw new IllegalArgumentException("Coalescing window must not be negative: " + coalesceMillis);
+		}
+
 		this.ledger = ledger;
+		this.coalesceMillis = coalesceMillis;
 	}
 
 	public Single<Collection<Consumable>> getCurrentConsumables(RadixAddress address) {
 		return this.getConsumables(address).firstOrError();
 	}
 
+	/**
+	 * Returns the unconsumed consumables of an address as a backpressured stream. Each
+	 * item is a full snapshot, so {@link BackpressureStrategy#LATEST} is usually enough.
+	 *
+	 * @param address address to get the consumables of
+	 * @param strategy what to do with snapshots the subscriber is not ready for
+	 * @return flowable of consumable snapshots
+	 */
+	public Flowable<Collection<Consumable>> getConsumables(RadixAddress address, BackpressureStrategy strategy) {
+		return this.getConsumables(address).toFlowable(strategy);
+	}
+
+	/**
+	 * Returns the unconsumed consumables of every asset of an address
+	 *
+	 * @param address address to get the consumables of
+	 * @return observable of consumable snapshots
+	 */
 	public Observable<Collection<Consumable>> getConsumables(RadixAddress address) {
-		// TODO: use https://github.com/JakeWharton/RxReplayingShare to disconnect when unsubscribed
-		return cache.computeIfAbsent(address, addr ->
-			Observable.<Collection<Consumable>>just(Collections.emptySet()).concatWith(
-				Observable.combineLatest(
-					Observable.fromCallable(() -> new TransactionAtoms(address, Asset.TEST.getId())),
-					ledger.getAllAtoms(address.getUID(), TransactionAtom.class),
-					(transactionAtoms, atom) ->
-						transactionAtoms.accept(atom)
-							.getUnconsumedConsumables()
-				).flatMapMaybe(unconsumedMaybe -> unconsumedMaybe)
-			).debounce(1000, TimeUnit.MILLISECONDS)
-				.replay(1).autoConnect()
-		);
+		return this.getTransactionAtoms(address).map(TransactionAtoms::getUnconsumedConsumables);
+	}
+
+	/**
+	 * Returns the unconsumed consumables of one asset of an address. All assets of an
+	 * address are tracked from the same atom stream, whichever asset is asked for.
+	 *
+	 * @param address address to get the consumables of
+	 * @param assetId asset to get the consumables of
+	 * @return observable of consumable snapshots
+	 */
+	public Observable<Collection<Consumable>> getConsumables(RadixAddress address, EUID assetId) {
+		return this.getTransactionAtoms(address).map(transactionAtoms -> transactionAtoms.getUnconsumedConsumables(assetId));
+	}
+
+	/**
+	 * Returns the balances of an address per asset. Balances are kept as running totals
+	 * while atoms are received, so they are not summed up again for every snapshot.
+	 *
+	 * @param address address to get the balances of
+	 * @return observable of the balance of each asset the address holds
+	 */
+	public Observable<Map<EUID, Long>> getBalances(RadixAddress address) {
+		return this.getTransactionAtoms(address).map(TransactionAtoms::getBalances);
+	}
+
+	/**
+	 * Emits the transaction state of an address once its history has been caught up with,
+	 * and then on every change. Each emission has a new version. The state is shared by all
+	 * subscribers and replayed to late ones. Once nobody has been subscribed for a while the
+	 * atom stream is disconnected and the address is dropped from the cache.
+	 */
+	private Observable<TransactionAtoms> getTransactionAtoms(RadixAddress address) {
+		synchronized (cache) {
+			Observable<TransactionAtoms> shared = cache.get(address);
+			if (shared == null) {
+				shared = share(address);
+				cache.put(address, shared);
+			}
+			return shared;
+		}
+	}
+
+	private Observable<TransactionAtoms> share(RadixAddress address) {
+		final AtomicReference<Observable<TransactionAtoms>> self = new AtomicReference<>();
+		final Observable<TransactionAtoms> shared = Observable.defer(() -> {
+			final TransactionAtoms transactionAtoms = new TransactionAtoms(address);
+			// True for the end of history, false for every change
+			return ledger.getAtomUpdates(address.getUID(), TransactionAtom.class)
+				.flatMapMaybe(update -> update.isHistoryEnd()
+					? Maybe.just(true)
+					: transactionAtoms.accept(update.getAtom()).getNewValidTransactions().lastElement().map(lastTx -> false)
+				)
+				.startWith(false)
+				.publish(updates -> caughtUp(updates).concatWith(coalesced(updates.filter(historyEnd -> !historyEnd))))
+				.map(update -> transactionAtoms);
+		})
+			.distinctUntilChanged(TransactionAtoms::getVersion)
+			.doFinally(() -> {
+				synchronized (cache) {
+					cache.remove(address, self.get());
+				}
+			})
+			.replay(1)
+			.refCount(IDLE_EVICTION_SECONDS, TimeUnit.SECONDS);
+		self.set(shared);
+		return shared;
+	}
+
+	/**
+	 * Emits once when the history of an address has been received, as marked by the ledger.
+	 * Emitting before history is complete would show balances which are too low, and
+	 * consumables which are already spent. Should the end of history take long to arrive,
+	 * history is taken as received once atoms stop arriving for a while, as a fallback.
+	 * Every later change is emitted as soon as it is received.
+	 */
+	private static Observable<Boolean> caughtUp(Observable<Boolean> updates) {
+		return Observable.merge(
+			updates.filter(historyEnd -> historyEnd),
+			updates.debounce(CATCH_UP_QUIET_MILLIS, TimeUnit.MILLISECONDS)
+		).take(1);
+	}
+
+	private <T> Observable<T> coalesced(Observable<T> changes) {
+		if (coalesceMillis == 0) {
+			return changes;
+		}
+
+		return changes.buffer(coalesceMillis, TimeUnit.MILLISECONDS, MAX_COALESCED_CHANGES)
+			.filter(batch -> !batch.isEmpty())
+			.map(batch -> batch.get(batch.size() - 1));
 	}
 }
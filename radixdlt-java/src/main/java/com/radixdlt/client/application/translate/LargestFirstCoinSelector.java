@@ -0,0 +1,32 @@
+package com.radixdlt.client.application.translate;
+
+import com.radixdlt.client.core.atoms.Consumable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spends the largest consumables first, which needs the fewest inputs to reach an amount
+ * but usually leaves change.
+ */
+public class LargestFirstCoinSelector implements CoinSelector {
+	@Override
+	public Optional<List<Consumable>> select(Collection<Consumable> available, long amount) {
+		final List<Consumable> sorted = new ArrayList<>(available);
+		sorted.sort(Comparator.comparingLong(Consumable::getQuantity).reversed());
+
+		final List<Consumable> selected = new ArrayList<>();
+		long total = 0;
+		for (Consumable consumable : sorted) {
+			if (total >= amount) {
+				break;
+			}
+			selected.add(consumable);
+			total += consumable.getQuantity();
+		}
+
+		return total >= amount ? Optional.of(selected) : Optional.empty();
+	}
+}
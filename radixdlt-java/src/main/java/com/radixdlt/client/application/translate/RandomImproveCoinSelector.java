@@ -0,0 +1,75 @@
+package com.radixdlt.client.application.translate;
+
+import com.radixdlt.client.core.atoms.Consumable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Picks consumables at random until the amount is reached, then keeps adding random
+ * consumables while that brings the change closer to the amount itself, up to a bounded
+ * number of extra inputs. Change of about the size of a typical transfer keeps the set of
+ * consumables useful for later transfers instead of fragmenting it into dust, and random
+ * choices make concurrent transfers less likely to spend the same consumables.
+ */
+public class RandomImproveCoinSelector implements CoinSelector {
+	private static final int DEFAULT_MAX_EXTRA_INPUTS = 2;
+
+	private final Random random;
+	private final int maxExtraInputs;
+
+	public RandomImproveCoinSelector() {
+		this(new Random(), DEFAULT_MAX_EXTRA_INPUTS);
+	}
+
+	/**
+	 * @param random source of the random choices
+	 * @param maxExtraInputs maximum number of inputs added beyond those needed to reach the amount
+	 */
+	public RandomImproveCoinSelector(Random random, int maxExtraInputs) {
+		if (maxExtraInputs < 0) {
+			throw new IllegalArgumentException("Extra inputs must not be negative: " + maxExtraInputs);
+		}
+
+		this.random = random;
+		this.maxExtraInputs = maxExtraInputs;
+	}
+
+	@Override
+	public Optional<List<Consumable>> select(Collection<Consumable> available, long amount) {
+		final List<Consumable> shuffled = new ArrayList<>(available);
+		Collections.shuffle(shuffled, random);
+
+		final List<Consumable> selected = new ArrayList<>();
+		long total = 0;
+		int next = 0;
+		while (total < amount && next < shuffled.size()) {
+			final Consumable consumable = shuffled.get(next++);
+			selected.add(consumable);
+			total += consumable.getQuantity();
+		}
+
+		if (total < amount) {
+			return Optional.empty();
+		}
+
+		// Aim for change as large as the amount without going over twice the amount in change
+		final long ideal = 2 * amount;
+		final long max = 3 * amount;
+		int extra = 0;
+		while (extra < maxExtraInputs && next < shuffled.size()) {
+			final Consumable consumable = shuffled.get(next++);
+			final long improved = total + consumable.getQuantity();
+			if (improved <= max && Math.abs(ideal - improved) < Math.abs(ideal - total)) {
+				selected.add(consumable);
+				total = improved;
+				extra++;
+			}
+		}
+
+		return Optional.of(selected);
+	}
+}
@@ -4,6 +4,7 @@ import com.radixdlt.client.application.actions.TokenTransfer;
 import com.radixdlt.client.application.objects.Data;
 import com.radixdlt.client.assets.Asset;
 import com.radixdlt.client.core.RadixUniverse;
+import com.radixdlt.client.core.address.EUID;
 import com.radixdlt.client.core.address.RadixAddress;
 import com.radixdlt.client.core.atoms.AtomBuilder;
 import com.radixdlt.client.core.atoms.Consumable;
@@ -16,19 +17,31 @@ import io.reactivex.Completable;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class TokenTransferTranslator {
 	private final RadixUniverse universe;
 	private final ConsumableDataSource consumableDataSource;
+	private final CoinSelector coinSelector;
 
 	public TokenTransferTranslator(RadixUniverse universe, ConsumableDataSource consumableDataSource) {
+		this(universe, consumableDataSource, new BranchAndBoundCoinSelector());
+	}
+
+	/**
+	 * @param universe universe the transfers are in
+	 * @param consumableDataSource source of the consumables which can be spent
+	 * @param coinSelector chooses which consumables a transfer spends
+	 */
+	public TokenTransferTranslator(RadixUniverse universe, ConsumableDataSource consumableDataSource, CoinSelector coinSelector) {
 		this.universe = universe;
 		this.consumableDataSource = consumableDataSource;
+		this.coinSelector = Objects.requireNonNull(coinSelector);
 	}
 
 	public TokenTransfer fromAtom(TransactionAtom transactionAtom) {
@@ -78,7 +91,8 @@ public class TokenTransferTranslator {
 	public Completable translate(TokenTransfer tokenTransfer, AtomBuilder atomBuilder) {
 		atomBuilder.type(TransactionAtom.class);
 
-		return this.consumableDataSource.getConsumables(tokenTransfer.getFrom())
+		final EUID assetId = tokenTransfer.getTokenClass().getId();
+		return this.consumableDataSource.getConsumables(tokenTransfer.getFrom(), assetId)
 			.firstOrError()
 			.flatMapCompletable(unconsumedConsumables -> {
 
@@ -89,34 +103,38 @@ public class TokenTransferTranslator {
 					}
 				}
 
+				final long total = tokenTransfer.getSubUnitAmount();
+				final Optional<List<Consumable>> selected = coinSelector.select(unconsumedConsumables, total);
+				if (!selected.isPresent()) {
+					return Completable.error(new InsufficientFundsException(
+						tokenTransfer.getTokenClass(),
+						unconsumedConsumables.stream().mapToLong(Consumable::getQuantity).sum(),
+						total
+					));
+				}
+
 				long consumerTotal = 0;
-				Iterator<Consumable> iterator = unconsumedConsumables.iterator();
 				Map<Set<ECKeyPair>, Long> consumerQuantities = new HashMap<>();
 
 				// HACK for now
 				// TODO: remove this, create a ConsumersCreator
-				// TODO: randomize this to decrease probability of collision
-				while (consumerTotal < tokenTransfer.getSubUnitAmount() && iterator.hasNext()) {
-					final long left = tokenTransfer.getSubUnitAmount() - consumerTotal;
+				for (Consumable consumable : selected.get()) {
+					final long left = total - consumerTotal;
 
-					Consumer newConsumer = iterator.next().toConsumer();
+					Consumer newConsumer = consumable.toConsumer();
 					consumerTotal += newConsumer.getQuantity();
 
-					final long amount = Math.min(left, newConsumer.getQuantity());
+					// Selectors may pick more than needed, whatever is left over goes back as change
+					final long amount = Math.max(0, Math.min(left, newConsumer.getQuantity()));
 					newConsumer.addConsumerQuantities(amount, Collections.singleton(tokenTransfer.getTo().toECKeyPair()),
 						consumerQuantities);
 
 					atomBuilder.addParticle(newConsumer);
 				}
 
-				if (consumerTotal < tokenTransfer.getSubUnitAmount()) {
-					return Completable.error(new InsufficientFundsException(
-						tokenTransfer.getTokenClass(), consumerTotal, tokenTransfer.getSubUnitAmount()
-					));
-				}
-
 				List<Consumable> consumables = consumerQuantities.entrySet().stream()
-					.map(entry -> new Consumable(entry.getValue(), entry.getKey(), System.nanoTime(), Asset.TEST.getId()))
+					.filter(entry -> entry.getValue() > 0)
+					.map(entry -> new Consumable(entry.getValue(), entry.getKey(), System.nanoTime(), assetId))
 					.collect(Collectors.toList());
 				atomBuilder.addParticles(consumables);
 
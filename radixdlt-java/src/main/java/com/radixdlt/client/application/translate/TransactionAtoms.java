@@ -9,9 +9,17 @@ import com.radixdlt.client.core.atoms.TransactionAtom;
 import io.reactivex.ObservableEmitter;
 import io.reactivex.observables.ConnectableObservable;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,30 +38,92 @@ public class TransactionAtoms {
 		}
 
 		public io.reactivex.Maybe<Collection<Consumable>> getUnconsumedConsumables() {
-			return newValidTransactions.lastElement().map(lastTx -> unconsumedConsumables.values());
+			return newValidTransactions.lastElement().map(lastTx -> TransactionAtoms.this.getUnconsumedConsumables());
+		}
+	}
+
+	private static class PendingAtom {
+		private final TransactionAtom atom;
+		private int missing;
+
+		private PendingAtom(TransactionAtom atom, int missing) {
+			this.atom = atom;
+			this.missing = missing;
 		}
 	}
 
 	private final RadixAddress address;
+
+	/**
+	 * Asset tracked, or null to track every asset
+	 */
 	private final EUID assetId;
-	private final ConcurrentHashMap<ByteBuffer, Consumable> unconsumedConsumables = new ConcurrentHashMap<>();
-	private final ConcurrentHashMap<ByteBuffer, TransactionAtom> missingConsumable = new ConcurrentHashMap<>();
 
+	/**
+	 * Unconsumed consumables indexed by asset
+	 */
+	private final ConcurrentHashMap<EUID, ConcurrentHashMap<ByteBuffer, Consumable>> unconsumedConsumables = new ConcurrentHashMap<>();
+
+	/**
+	 * Atoms waiting on consumables they consume, by consumable. An atom waiting on several
+	 * consumables is listed under each of them.
+	 */
+	private final Map<ByteBuffer, List<PendingAtom>> waiting = new HashMap<>();
+
+	/**
+	 * Sum of the unconsumed consumables per asset, kept up to date as consumables come and go
+	 */
+	private final ConcurrentHashMap<EUID, Long> balances = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of valid transactions applied so far
+	 */
+	private long version = 0;
+
+	/**
+	 * Tracks the consumables of every asset of an address
+	 *
+	 * @param address address to track the consumables of
+	 */
+	public TransactionAtoms(RadixAddress address) {
+		this.address = address;
+		this.assetId = null;
+	}
+
+	/**
+	 * Tracks the consumables of a single asset of an address
+	 *
+	 * @param address address to track the consumables of
+	 * @param assetId asset to track
+	 */
 	public TransactionAtoms(RadixAddress address, EUID assetId) {
 		this.address = address;
-		this.assetId = assetId;
+		this.assetId = Objects.requireNonNull(assetId);
+	}
+
+	private boolean isTracked(AbstractConsumable particle) {
+		return particle.getOwnersPublicKeys().stream().allMatch(address::ownsKey)
+			&& (assetId == null || particle.getAssetId().equals(assetId));
 	}
 
-	private void addConsumables(TransactionAtom transactionAtom, ObservableEmitter<TransactionAtom> emitter) {
+	private ConcurrentHashMap<ByteBuffer, Consumable> consumablesOf(EUID asset) {
+		return unconsumedConsumables.computeIfAbsent(asset, a -> new ConcurrentHashMap<>());
+	}
+
+	/**
+	 * Adds the consumables of an applied atom and takes away the ones it consumes. Atoms
+	 * waiting on an added consumable which have no more missing inputs are queued to be
+	 * applied.
+	 */
+	private void addConsumables(TransactionAtom transactionAtom, Queue<TransactionAtom> ready) {
 		transactionAtom.getParticles().stream()
 			.filter(Particle::isAbstractConsumable)
 			.map(Particle::getAsAbstractConsumable)
-			.filter(particle -> particle.getOwnersPublicKeys().stream().allMatch(address::ownsKey))
-			.filter(particle -> particle.getAssetId().equals(assetId))
+			.filter(this::isTracked)
 			.forEach(particle -> {
 				ByteBuffer dson = ByteBuffer.wrap(particle.getDson());
 				if (particle.isConsumable()) {
-					unconsumedConsumables.compute(dson, (thisHash, current) -> {
+					consumablesOf(particle.getAssetId()).compute(dson, (thisHash, current) -> {
 						if (current == null) {
 							return particle.getAsConsumable();
 						} else {
@@ -61,46 +131,98 @@ public class TransactionAtoms {
 						}
 					});
 
-					TransactionAtom reanalyzeAtom = missingConsumable.remove(dson);
-					if (reanalyzeAtom != null) {
-						checkConsumers(reanalyzeAtom, emitter);
+					balances.merge(particle.getAssetId(), particle.getSignedQuantity(), Long::sum);
+
+					List<PendingAtom> waiters = waiting.remove(dson);
+					if (waiters != null) {
+						for (PendingAtom waiter : waiters) {
+							if (--waiter.missing == 0) {
+								ready.add(waiter.atom);
+							}
+						}
 					}
 				} else {
-					Consumable consumable = unconsumedConsumables.remove(dson);
+					Consumable consumable = consumablesOf(particle.getAssetId()).remove(dson);
 					if (consumable == null) {
 						throw new IllegalStateException();
 					}
+					balances.merge(particle.getAssetId(), particle.getSignedQuantity(), Long::sum);
 				}
 			});
 	}
 
-	private void checkConsumers(TransactionAtom transactionAtom, ObservableEmitter<TransactionAtom> emitter) {
-		Optional<ByteBuffer> missing = transactionAtom.getParticles().stream()
+	/**
+	 * @return the distinct consumables an atom consumes which are not unconsumed yet
+	 */
+	private Set<ByteBuffer> missingInputs(TransactionAtom transactionAtom) {
+		return transactionAtom.getParticles().stream()
 			.filter(Particle::isAbstractConsumable)
 			.map(Particle::getAsAbstractConsumable)
-			.filter(particle -> particle.getOwnersPublicKeys().stream().allMatch(address::ownsKey))
-			.filter(particle -> particle.getAssetId().equals(assetId))
+			.filter(this::isTracked)
 			.filter(AbstractConsumable::isConsumer)
-			.map(AbstractConsumable::getDson)
-			.map(ByteBuffer::wrap)
-			.filter(dson -> !unconsumedConsumables.containsKey(dson))
-			.findFirst();
-
-		if (missing.isPresent()) {
-			LOGGER.info("Missing consumable for atom: " + transactionAtom);
-			missingConsumable.compute(missing.get(), (thisHash, current) -> {
-				if (current == null) {
-					return transactionAtom;
-				} else {
-					throw new IllegalStateException();
-				}
-			});
-		} else {
-			emitter.onNext(transactionAtom);
-			addConsumables(transactionAtom, emitter);
+			.filter(particle -> !consumablesOf(particle.getAssetId()).containsKey(ByteBuffer.wrap(particle.getDson())))
+			.map(particle -> ByteBuffer.wrap(particle.getDson()))
+			.collect(Collectors.toSet());
+	}
+
+	/**
+	 * Applies an atom if all the consumables it consumes are there, or else parks it until
+	 * they are. Applying an atom can release atoms parked on it, which are applied in turn.
+	 */
+	private void checkConsumers(TransactionAtom transactionAtom, ObservableEmitter<TransactionAtom> emitter) {
+		final Queue<TransactionAtom> ready = new ArrayDeque<>();
+		ready.add(transactionAtom);
+
+		while (!ready.isEmpty()) {
+			final TransactionAtom next = ready.poll();
+			final Set<ByteBuffer> missing = missingInputs(next);
+			if (!missing.isEmpty()) {
+				// Also reached when an atom released earlier consumed the same consumable
+				LOGGER.info("Missing {} consumables for atom: {}", missing.size(), next);
+				final PendingAtom pending = new PendingAtom(next, missing.size());
+				missing.forEach(input -> waiting.computeIfAbsent(input, i -> new ArrayList<>(1)).add(pending));
+				continue;
+			}
+
+			version++;
+			emitter.onNext(next);
+			addConsumables(next, ready);
 		}
 	}
 
+	/**
+	 * @return number of valid transactions applied so far, which changes with every change of
+	 * the consumables
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return a copy of the consumables not consumed yet, of every asset tracked
+	 */
+	public synchronized Collection<Consumable> getUnconsumedConsumables() {
+		final List<Consumable> consumables = new ArrayList<>();
+		unconsumedConsumables.values().forEach(ofAsset -> consumables.addAll(ofAsset.values()));
+		return consumables;
+	}
+
+	/**
+	 * @param asset asset to get the consumables of
+	 * @return a copy of the consumables of an asset not consumed yet
+	 */
+	public synchronized Collection<Consumable> getUnconsumedConsumables(EUID asset) {
+		final Map<ByteBuffer, Consumable> ofAsset = unconsumedConsumables.get(asset);
+		return ofAsset == null ? new ArrayList<>() : new ArrayList<>(ofAsset.values());
+	}
+
+	/**
+	 * @return a copy of the running total of unconsumed consumables per asset
+	 */
+	public synchronized Map<EUID, Long> getBalances() {
+		return new HashMap<>(balances);
+	}
+
 	public TransactionAtomsUpdate accept(TransactionAtom transactionAtom) {
 		ConnectableObservable<TransactionAtom> observable =
 			io.reactivex.Observable.<TransactionAtom>create(emitter -> {
@@ -8,6 +8,7 @@ import com.radixdlt.client.application.identity.RadixIdentity;
 import com.radixdlt.client.application.identity.SimpleRadixIdentity;
 import com.radixdlt.client.core.ledger.RadixLedger;
 import com.radixdlt.client.core.network.PeerDiscovery;
+import com.radixdlt.client.core.network.PeerHandshake;
 import com.radixdlt.client.core.network.RadixNetwork;
 import java.io.File;
 import java.io.IOException;
@@ -59,7 +60,7 @@ public final class RadixUniverse {
 				throw new IllegalStateException("Default Universe already bootstrapped");
 			}
 
-			RadixNetwork network = new RadixNetwork(peerDiscovery);
+			RadixNetwork network = new RadixNetwork(peerDiscovery, new PeerHandshake());
 			RadixLedger ledger = new RadixLedger(config.getMagic(), network);
 
 			defaultUniverse = new RadixUniverse(config, network, ledger);
@@ -19,6 +19,11 @@ public abstract class Atom {
 	private final Map<String, ECSignature> signatures;
 	private transient Map<String, Long> debug = new HashMap<>();
 
+	/**
+	 * Hash of the atom, computed on first use since atoms do not change once built
+	 */
+	private transient volatile RadixHash hash;
+
 	Atom() {
 		this.destinations = Collections.emptySet();
 		this.timestamps = null;
@@ -129,7 +134,12 @@ public abstract class Atom {
 	}
 
 	public RadixHash getHash() {
-		return RadixHash.of(Dson.getInstance().toDson(this));
+		RadixHash current = hash;
+		if (current == null) {
+			current = RadixHash.of(Dson.getInstance().toDson(this));
+			hash = current;
+		}
+		return current;
 	}
 
 	public EUID getHid() {
@@ -109,6 +109,10 @@ public class AtomBuilder {
 			throw new IllegalStateException("Payload must be under " + MAX_PAYLOAD_SIZE + " bytes but was " + payload.length());
 		}
 
+		// Atoms cache their hash so must not share collections the builder keeps adding to
+		final List<Particle> particles = new ArrayList<>(this.particles);
+		final Set<EUID> destinations = new HashSet<>(this.destinations);
+
 		final Atom atom;
 		if (TransactionAtom.class.isAssignableFrom(atomClass)) {
 			atom = new TransactionAtom(particles, destinations, payload, encryptor, this.timestamp);
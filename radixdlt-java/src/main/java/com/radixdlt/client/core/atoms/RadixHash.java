@@ -4,7 +4,6 @@ import com.radixdlt.client.core.address.EUID;
 import com.radixdlt.client.core.crypto.ECPublicKey;
 import com.radixdlt.client.core.crypto.ECSignature;
 import com.radixdlt.client.core.util.Hash;
-import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import org.bouncycastle.util.encoders.Base64;
@@ -37,6 +36,17 @@ public class RadixHash {
 		return hash[index];
 	}
 
+	/**
+	 * @return the first 64 bits of the hash
+	 */
+	public long getLongPrefix() {
+		long prefix = 0;
+		for (int i = 0; i < Long.BYTES; i++) {
+			prefix = (prefix << 8) | (hash[i] & 0xFF);
+		}
+		return prefix;
+	}
+
 	public static RadixHash of(byte[] data) {
 		return new RadixHash(Hash.sha256(Hash.sha256(data)));
 	}
@@ -65,7 +75,8 @@ public class RadixHash {
 
 	@Override
 	public int hashCode() {
-		return new BigInteger(hash).hashCode();
+		// The hash is uniformly distributed already so its first bits are as good as any
+		return (int) (getLongPrefix() >>> 32);
 	}
 
 	@Override
@@ -19,6 +19,14 @@ public class Shards {
 		return new Shards(low, high);
 	}
 
+	public long getLow() {
+		return low;
+	}
+
+	public long getHigh() {
+		return high;
+	}
+
 	public boolean intersects(Collection<Long> shards) {
 		return shards.stream().anyMatch(shard -> shard >= low && shard <= high);
 	}
@@ -0,0 +1,50 @@
+package com.radixdlt.client.core.ledger;
+
+import com.radixdlt.client.core.atoms.Atom;
+import java.util.Objects;
+
+/**
+ * An atom received by an atom query, or the point at which the query has received the
+ * history stored on the network when it was made. The end of history is seen once per
+ * query, atoms after it are new ones.
+ *
+ * @param <T> atom type
+ */
+public final class AtomQueryUpdate<T extends Atom> {
+	private static final AtomQueryUpdate<?> HISTORY_END = new AtomQueryUpdate<>(null);
+
+	private final T atom;
+
+	private AtomQueryUpdate(T atom) {
+		this.atom = atom;
+	}
+
+	public static <T extends Atom> AtomQueryUpdate<T> of(T atom) {
+		return new AtomQueryUpdate<>(Objects.requireNonNull(atom));
+	}
+
+	@SuppressWarnings("unchecked") // Holds no atom, so is an update of any atom type
+	public static <T extends Atom> AtomQueryUpdate<T> historyEnd() {
+		return (AtomQueryUpdate<T>) HISTORY_END;
+	}
+
+	public boolean isHistoryEnd() {
+		return atom == null;
+	}
+
+	/**
+	 * @return the atom received
+	 * @throws IllegalStateException if this is the end of history
+	 */
+	public T getAtom() {
+		if (atom == null) {
+			throw new IllegalStateException("End of history holds no atom");
+		}
+		return atom;
+	}
+
+	@Override
+	public String toString() {
+		return atom == null ? "HISTORY_END" : atom.toString();
+	}
+}
@@ -0,0 +1,46 @@
+package com.radixdlt.client.core.ledger;
+
+import com.radixdlt.client.core.address.EUID;
+import com.radixdlt.client.core.atoms.Atom;
+import com.radixdlt.client.core.network.AtomCursor;
+import io.reactivex.Observable;
+import java.util.Optional;
+
+/**
+ * Local copy of the atoms of destinations, so that their history does not have to be
+ * streamed from the network again every time it is needed.
+ */
+public interface AtomStore {
+	/**
+	 * Stores an atom under a destination. Storing an atom which is already stored under
+	 * the destination has no effect.
+	 *
+	 * @param destination destination the atom was queried for
+	 * @param atom a validated atom
+	 */
+	void store(EUID destination, Atom atom);
+
+	/**
+	 * @param destination destination to look the atom up under
+	 * @param hid hid of the atom
+	 * @return whether the atom is stored under the destination
+	 */
+	boolean contains(EUID destination, EUID hid);
+
+	/**
+	 * @param destination destination to get atoms for
+	 * @return the atoms stored under the destination, in the order they were stored
+	 */
+	Observable<Atom> getAtoms(EUID destination);
+
+	/**
+	 * Returns where the network query of a destination continues from, as a position in the
+	 * node's order rather than an atom timestamp, which is set by clients and may go back.
+	 * The checkpoint may be a few atoms before the last one stored, so that the most recent
+	 * atoms are fetched again, in case they were served by another node in a different order.
+	 *
+	 * @param destination destination to get the checkpoint of
+	 * @return cursor to continue the destination's query after, or empty to query from the start
+	 */
+	Optional<AtomCursor> getCheckpoint(EUID destination);
+}
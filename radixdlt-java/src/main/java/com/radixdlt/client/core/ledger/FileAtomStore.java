@@ -0,0 +1,239 @@
+package com.radixdlt.client.core.ledger;
+
+import com.google.gson.JsonParseException;
+import com.radixdlt.client.core.address.EUID;
+import com.radixdlt.client.core.atoms.Atom;
+import com.radixdlt.client.core.network.AtomCursor;
+import com.radixdlt.client.core.serialization.RadixJson;
+import io.reactivex.Observable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Atom store which appends atoms to a single log file and reads them back through a
+ * memory mapping of the file. An index from destination to the offsets of its atoms is
+ * kept in memory and rebuilt from the record headers when the file is opened, so the atoms
+ * themselves are only decoded when they are read.
+ *
+ * <p>Each record is laid out as its length, the destination, the hid and timestamp of the
+ * atom, and the atom's json. A record cut short by a crash is dropped when the file is opened.
+ */
+public class FileAtomStore implements AtomStore, Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileAtomStore.class);
+
+	/**
+	 * Number of most recently stored atoms of a destination fetched again after a restart
+	 */
+	static final int CHECKPOINT_OVERLAP = 16;
+
+	private static class DestinationIndex {
+		private final List<Long> offsets = new ArrayList<>();
+		private final List<EUID> order = new ArrayList<>();
+		private final Set<EUID> hids = new HashSet<>();
+	}
+
+	private final File file;
+	private final FileChannel channel;
+	private final Map<EUID, DestinationIndex> index = new HashMap<>();
+	private MappedByteBuffer mapped;
+
+	/**
+	 * @param file log file the atoms are stored in, created if it does not exist
+	 * @throws IOException if the file cannot be opened
+	 */
+	public FileAtomStore(File file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.scan();
+	}
+
+	/**
+	 * Rebuilds the index from the record headers, truncating an incomplete last record
+	 */
+	private void scan() throws IOException {
+		final long size = channel.size();
+		final ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+		long offset = 0;
+		int count = 0;
+		while (offset + Integer.BYTES <= size) {
+			lengthBuffer.clear();
+			readFully(lengthBuffer, offset);
+			final int length = lengthBuffer.getInt(0);
+			if (length <= 0 || offset + Integer.BYTES + length > size) {
+				break;
+			}
+
+			final ByteBuffer record = read(offset);
+			final EUID destination = readEUID(record);
+			final EUID hid = readEUID(record);
+			addToIndex(destination, hid, offset);
+
+			offset += Integer.BYTES + length;
+			count++;
+		}
+
+		if (offset < size) {
+			LOGGER.warn("Dropping {} bytes of incomplete atom record from {}", size - offset, file);
+			channel.truncate(offset);
+			mapped = null;
+		}
+
+		LOGGER.info("Loaded {} stored atoms from {}", count, file);
+	}
+
+	private void addToIndex(EUID destination, EUID hid, long offset) {
+		final DestinationIndex destinationIndex = index.computeIfAbsent(destination, d -> new DestinationIndex());
+		destinationIndex.offsets.add(offset);
+		destinationIndex.order.add(hid);
+		destinationIndex.hids.add(hid);
+	}
+
+	@Override
+	public synchronized void store(EUID destination, Atom atom) {
+		if (atom.isUnknown()) {
+			return;
+		}
+
+		final DestinationIndex destinationIndex = index.get(destination);
+		final EUID hid = atom.getHid();
+		if (destinationIndex != null && destinationIndex.hids.contains(hid)) {
+			return;
+		}
+
+		final byte[] destinationBytes = destination.bigInteger().toByteArray();
+		final byte[] hidBytes = hid.bigInteger().toByteArray();
+		final byte[] json = RadixJson.getGson().toJson(atom, Atom.class).getBytes(StandardCharsets.UTF_8);
+		final int length = 2 * Short.BYTES + destinationBytes.length + hidBytes.length + Long.BYTES + json.length;
+
+		final ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length);
+		record.putInt(length);
+		record.putShort((short) destinationBytes.length);
+		record.put(destinationBytes);
+		record.putShort((short) hidBytes.length);
+		record.put(hidBytes);
+		record.putLong(atom.getTimestamp() == null ? 0 : atom.getTimestamp());
+		record.put(json);
+		record.flip();
+
+		try {
+			final long offset = channel.size();
+			while (record.hasRemaining()) {
+				channel.write(record, offset + record.position());
+			}
+			addToIndex(destination, hid, offset);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to store atom in " + file, e);
+		}
+	}
+
+	@Override
+	public synchronized boolean contains(EUID destination, EUID hid) {
+		final DestinationIndex destinationIndex = index.get(destination);
+		return destinationIndex != null && destinationIndex.hids.contains(hid);
+	}
+
+	@Override
+	public Observable<Atom> getAtoms(EUID destination) {
+		return Observable.defer(() -> {
+			final List<Long> offsets;
+			synchronized (this) {
+				final DestinationIndex destinationIndex = index.get(destination);
+				if (destinationIndex == null) {
+					return Observable.empty();
+				}
+				offsets = new ArrayList<>(destinationIndex.offsets);
+			}
+
+			return Observable.fromIterable(offsets).map(this::readAtom);
+		});
+	}
+
+	@Override
+	public synchronized Optional<AtomCursor> getCheckpoint(EUID destination) {
+		final DestinationIndex destinationIndex = index.get(destination);
+		if (destinationIndex == null || destinationIndex.order.size() <= CHECKPOINT_OVERLAP) {
+			return Optional.empty();
+		}
+
+		return Optional.of(AtomCursor.after(destinationIndex.order.get(destinationIndex.order.size() - 1 - CHECKPOINT_OVERLAP)));
+	}
+
+	private synchronized Atom readAtom(long offset) throws IOException {
+		final ByteBuffer record = read(offset);
+		readEUID(record);
+		readEUID(record);
+		record.getLong();
+
+		final String json = StandardCharsets.UTF_8.decode(record).toString();
+		try {
+			return RadixJson.getGson().fromJson(json, Atom.class);
+		} catch (JsonParseException e) {
+			throw new IllegalStateException("Corrupt atom record at " + offset + " in " + file, e);
+		}
+	}
+
+	/**
+	 * @return the record at an offset without its length prefix
+	 */
+	private ByteBuffer read(long offset) throws IOException {
+		final ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+		readFully(lengthBuffer, offset);
+		final int length = lengthBuffer.getInt(0);
+		final long start = offset + Integer.BYTES;
+		final long end = start + length;
+
+		// Mappings are limited to 2GB so records beyond that are read directly
+		if (end > Integer.MAX_VALUE) {
+			final ByteBuffer record = ByteBuffer.allocate(length);
+			readFully(record, start);
+			record.flip();
+			return record;
+		}
+
+		if (mapped == null || end > mapped.capacity()) {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+		}
+
+		final ByteBuffer record = mapped.duplicate();
+		record.position((int) start);
+		record.limit((int) end);
+		return record.slice();
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of " + file + " at " + position);
+			}
+		}
+	}
+
+	private static EUID readEUID(ByteBuffer record) {
+		final byte[] bytes = new byte[record.getShort()];
+		record.get(bytes);
+		return new EUID(new BigInteger(bytes));
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		mapped = null;
+		channel.close();
+	}
+}
@@ -4,20 +4,42 @@ import com.radixdlt.client.core.address.EUID;
 import com.radixdlt.client.core.address.RadixAddress;
 import com.radixdlt.client.core.atoms.Atom;
 import com.radixdlt.client.core.atoms.AtomValidationException;
-import com.radixdlt.client.core.atoms.RadixHash;
+import com.radixdlt.client.core.atoms.Particle;
 import com.radixdlt.client.core.crypto.ECPublicKey;
+import com.radixdlt.client.core.network.AtomCursor;
 import com.radixdlt.client.core.network.AtomQuery;
 import com.radixdlt.client.core.network.AtomSubmissionUpdate;
 import com.radixdlt.client.core.network.AtomSubmissionUpdate.AtomSubmissionState;
-import com.radixdlt.client.core.network.IncreasingRetryTimer;
+import com.radixdlt.client.core.network.ExponentialBackoff;
+import com.radixdlt.client.core.network.ExponentialBackoffRetryPolicy;
+import com.radixdlt.client.core.network.RadixJsonRpcClient;
 import com.radixdlt.client.core.network.RadixNetwork;
+import com.radixdlt.client.core.network.RetryPolicy;
+import com.radixdlt.client.core.network.RetryTimer;
 import com.radixdlt.client.core.serialization.RadixJson;
+import com.radixdlt.client.core.util.LruMap;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
 import io.reactivex.functions.Predicate;
 import io.reactivex.observables.ConnectableObservable;
-import java.util.HashSet;
+import io.reactivex.schedulers.Schedulers;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,10 +51,102 @@ import org.slf4j.LoggerFactory;
 public class RadixLedger {
 	private static final Logger LOGGER = LoggerFactory.getLogger(RadixLedger.class);
 
+	/**
+	 * Number of destinations whose atom queries are kept for sharing, least recently used first out
+	 */
+	private static final int MAX_CACHED_DESTINATIONS = 256;
+
+	private static final int DEFAULT_MAX_REPLAYED_ATOMS = 4096;
+
+	/**
+	 * Number of most recent atoms of a stream checked for duplicates, before asking the atom
+	 * store if there is one
+	 */
+	private static final int DEDUPE_WINDOW = 16_384;
+
+	/**
+	 * Number of most recent atoms fetched again when an atom query is retried
+	 */
+	static final int RESUME_OVERLAP = 16;
+
+	/**
+	 * The stored history of a destination is fetched in pages of this many atoms, a few
+	 * pages ahead, before subscribing to new atoms
+	 */
+	private static final int HISTORY_PAGE_SIZE = 100;
+	private static final int HISTORY_PREFETCH_PAGES = 2;
+
+	private static final int DEFAULT_VALIDATION_CONCURRENCY = Runtime.getRuntime().availableProcessors();
+
 	private final RadixNetwork radixNetwork;
 	private final int magic;
 	private final AtomicBoolean debug = new AtomicBoolean(false);
 
+	/**
+	 * Atom queries never complete so are retried for as long as it takes
+	 */
+	private volatile RetryPolicy queryRetryPolicy =
+		new ExponentialBackoffRetryPolicy(new ExponentialBackoff(1000, 100_000), Integer.MAX_VALUE, Long.MAX_VALUE);
+
+	/**
+	 * Submissions give up after ten minutes so that callers learn about the failure
+	 */
+	private volatile RetryPolicy submissionRetryPolicy =
+		new ExponentialBackoffRetryPolicy(new ExponentialBackoff(1000, 60_000), 30, TimeUnit.MINUTES.toMillis(10));
+
+	/**
+	 * Percentile of a node's latency after which single atom reads are also sent to another node
+	 */
+	private volatile double hedgePercentile = 0.95;
+
+	/**
+	 * Atoms with signatures to check are validated on this scheduler, a bounded number at a time
+	 */
+	private volatile Scheduler validationScheduler = Schedulers.computation();
+	private volatile int validationConcurrency = DEFAULT_VALIDATION_CONCURRENCY;
+
+	/**
+	 * Local copy of the atoms queried so far, or null to always query the network
+	 */
+	private volatile AtomStore atomStore;
+
+	/**
+	 * Number of most recent atoms of a destination replayed to late subscribers
+	 */
+	private volatile int maxReplayedAtoms = DEFAULT_MAX_REPLAYED_ATOMS;
+
+	/**
+	 * An update of a shared query with its position, so that late subscribers can tell
+	 * whether the replay still starts at the first atom
+	 */
+	private static final class SequencedAtom {
+		private final long sequence;
+		private final AtomQueryUpdate<Atom> update;
+
+		private SequencedAtom(long sequence, AtomQueryUpdate<Atom> update) {
+			this.sequence = sequence;
+			this.update = update;
+		}
+	}
+
+	/**
+	 * Signals that a shared query no longer replays its first atoms
+	 */
+	private static final class ReplayTruncatedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private ReplayTruncatedException() {
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * Atom queries shared between all subscribers of a destination, replaying the atoms
+	 * received so far to late subscribers. Queries are removed once their last subscriber
+	 * leaves.
+	 */
+	private final Map<EUID, Observable<SequencedAtom>> atomCache = new LruMap<>(MAX_CACHED_DESTINATIONS);
+
 	public RadixLedger(int magic, RadixNetwork radixNetwork) {
 		this.magic = magic;
 		this.radixNetwork = radixNetwork;
@@ -42,6 +156,89 @@ public class RadixLedger {
 		this.debug.set(debug);
 	}
 
+	/**
+	 * Sets how atom queries are retried when the node serving them fails. Each retry
+	 * is sent to a different healthy node if there is one.
+	 *
+	 * @param queryRetryPolicy retry policy for atom queries
+	 */
+	public void setQueryRetryPolicy(RetryPolicy queryRetryPolicy) {
+		this.queryRetryPolicy = Objects.requireNonNull(queryRetryPolicy);
+	}
+
+	/**
+	 * Sets how atom submissions are retried when the node they were sent to fails.
+	 * Each retry is sent to a different healthy node if there is one.
+	 *
+	 * @param submissionRetryPolicy retry policy for atom submissions
+	 */
+	public void setSubmissionRetryPolicy(RetryPolicy submissionRetryPolicy) {
+		this.submissionRetryPolicy = Objects.requireNonNull(submissionRetryPolicy);
+	}
+
+	/**
+	 * Sets when single atom reads such as {@link #getAtom(EUID, EUID)} are hedged: if the
+	 * first node has not answered within the given percentile of its recent round trip times
+	 * the same read is also sent to a second node serving the shard. The first answer wins
+	 * and the other read is cancelled. Atom queries are never hedged, as they stay open
+	 * for as long as they are subscribed to.
+	 *
+	 * @param hedgePercentile percentile between 0 and 1 of the first node's latency after
+	 * which to hedge, or 0 to disable hedging
+	 */
+	public void setHedgePercentile(double hedgePercentile) {
+		if (hedgePercentile < 0 || hedgePercentile > 1) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 1: " + hedgePercentile);
+		}
+		this.hedgePercentile = hedgePercentile;
+	}
+
+	/**
+	 * Sets where received atoms are validated. Atoms are validated in parallel but are
+	 * still emitted in the order they were received.
+	 *
+	 * @param validationScheduler scheduler whose workers validate atoms
+	 * @param validationConcurrency maximum number of atoms being validated at once
+	 */
+	public void setValidationScheduler(Scheduler validationScheduler, int validationConcurrency) {
+		if (validationConcurrency < 1) {
+			throw new IllegalArgumentException("Must validate at least one atom at a time: " + validationConcurrency);
+		}
+		this.validationScheduler = Objects.requireNonNull(validationScheduler);
+		this.validationConcurrency = validationConcurrency;
+	}
+
+	/**
+	 * Sets where atoms are kept locally. With a store, the history of a destination is
+	 * read from the store and the network is only queried from the store's checkpoint on.
+	 * Every atom received is added to the store once validated.
+	 *
+	 * @param atomStore store to keep atoms in, or null to not keep atoms locally
+	 */
+	public void setAtomStore(AtomStore atomStore) {
+		this.atomStore = atomStore;
+		synchronized (atomCache) {
+			atomCache.clear();
+		}
+	}
+
+	/**
+	 * Sets how many of the most recent atoms of a destination are kept to replay to late
+	 * subscribers of {@link #getAllAtoms(EUID, Class)}. A late subscriber to a destination
+	 * with more atoms than that gets its own query instead.
+	 *
+	 * @param maxReplayedAtoms number of atoms kept per destination
+	 */
+	public void setMaxReplayedAtoms(int maxReplayedAtoms) {
+		if (maxReplayedAtoms < 1) {
+			throw new IllegalArgumentException("Must replay at least one atom: " + maxReplayedAtoms);
+		}
+		this.maxReplayedAtoms = maxReplayedAtoms;
+		synchronized (atomCache) {
+			atomCache.clear();
+		}
+	}
+
 	public int getMagic() {
 		return magic;
 	}
@@ -68,56 +265,326 @@ public class RadixLedger {
 	}
 
 	/**
-	 * Returns a new hot Observable Atom Query which will connect to the network
-	 * to retrieve the requested atoms.
+	 * Returns a hot Observable Atom Query which will connect to the network to retrieve
+	 * the requested atoms. All queries for the same destination share one network query,
+	 * whatever their atom class, and late subscribers are first replayed the atoms
+	 * already received, see {@link #setMaxReplayedAtoms(int)}.
 	 *
 	 * @param destination destination (which determines shard) to query atoms for
 	 * @param atomClass atom class type to filter for
 	 * @return a new Observable Atom Query
 	 */
 	public <T extends Atom> io.reactivex.Observable<T> getAllAtoms(EUID destination, Class<T> atomClass) {
+		return getAtomUpdates(destination, atomClass)
+			.filter(update -> !update.isHistoryEnd())
+			.map(AtomQueryUpdate::getAtom);
+	}
+
+	/**
+	 * Returns the atoms at a destination like {@link #getAllAtoms(EUID, Class)}, marking
+	 * where the history stored on the network when the query was made ends. Consumers
+	 * which fold atoms into state, such as balances, can wait for it before showing the
+	 * state, rather than guess when the history is complete.
+	 *
+	 * @param destination destination (which determines shard) to query atoms for
+	 * @param atomClass atom class type to filter for
+	 * @return a new Observable Atom Query, with the end of history once in between
+	 */
+	public <T extends Atom> Observable<AtomQueryUpdate<T>> getAtomUpdates(EUID destination, Class<T> atomClass) {
 		Objects.requireNonNull(destination);
 		Objects.requireNonNull(atomClass);
 
-		final AtomQuery<T> atomQuery = new AtomQuery<>(destination, atomClass);
-		return radixNetwork.getRadixClient(destination.getShard())
-			//.doOnSubscribe(client -> logger.info("Looking for client to serve atoms at: " + destination))
-			//.doOnSuccess(client -> logger.info("Found client to serve atoms: " + client.getLocation()))
-			.flatMapObservable(client -> client.getAtoms(atomQuery))
-			.doOnError(Throwable::printStackTrace)
-			.retryWhen(new IncreasingRetryTimer())
-			.filter(new Predicate<T>() {
-				private final Set<RadixHash> atomsSeen = new HashSet<>();
-
-				@Override
-				public boolean test(T t) {
-					if (atomsSeen.contains(t.getHash())) {
-						LOGGER.warn("Atom Already Seen: destination({}) atom({})", destination, t);
-						return false;
+		return Observable.defer(() -> {
+			final Observable<SequencedAtom> shared;
+			synchronized (atomCache) {
+				shared = atomCache.computeIfAbsent(destination, this::share);
+			}
+
+			// Once the replay has dropped the first atoms, a late subscriber needs a query of its own
+			final AtomicBoolean first = new AtomicBoolean(true);
+			return shared
+				.map(sequenced -> {
+					if (first.getAndSet(false) && sequenced.sequence != 0) {
+						throw new ReplayTruncatedException();
 					}
-					atomsSeen.add(t.getHash());
+					return sequenced.update;
+				})
+				.onErrorResumeNext(e -> e instanceof ReplayTruncatedException ? queryAtoms(destination) : Observable.error(e));
+		})
+			.filter(update -> update.isHistoryEnd() || atomClass.isInstance(update.getAtom()))
+			.map(update -> update.isHistoryEnd()
+				? AtomQueryUpdate.<T>historyEnd()
+				: AtomQueryUpdate.of(atomClass.cast(update.getAtom()))
+			);
+	}
 
-					return true;
+	/**
+	 * Shares the query of a destination, numbering its atoms, until its last subscriber leaves
+	 */
+	private Observable<SequencedAtom> share(EUID destination) {
+		final AtomicReference<Observable<SequencedAtom>> shared = new AtomicReference<>();
+		shared.set(Observable.defer(() -> {
+			final AtomicLong sequence = new AtomicLong();
+			return queryAtoms(destination).map(update -> new SequencedAtom(sequence.getAndIncrement(), update));
+		})
+			.doFinally(() -> {
+				synchronized (atomCache) {
+					atomCache.remove(destination, shared.get());
 				}
 			})
-			.filter(atom -> {
-				try {
-					RadixAtomValidator.getInstance().validate(atom);
-					return true;
-				} catch (AtomValidationException e) {
-					// TODO: Stop stream and mark client as untrustable
-					LOGGER.error(e.toString());
-					return false;
-				}
+			.replay(maxReplayedAtoms)
+			.refCount());
+		return shared.get();
+	}
+
+	/**
+	 * Queries all atoms of a destination, from the atom store first if there is one. Each
+	 * subscription is a query of its own.
+	 */
+	private Observable<AtomQueryUpdate<Atom>> queryAtoms(EUID destination) {
+		final AtomStore store = atomStore;
+		if (store == null) {
+			// Without a store only the most recent atoms are remembered. Retries resume a few
+			// atoms before the last one received, well within the window.
+			final Observable<AtomQueryUpdate<Atom>> network = resumed(destination, Optional.empty());
+			return verified(Observable.empty(), network, destination, Atom.class, DEDUPE_WINDOW, atom -> false);
+		}
+
+		// Stored atoms were validated before being stored, and are still known to the store
+		// once they have left the dedupe window
+		final Observable<AtomQueryUpdate<Atom>> network =
+			Observable.defer(() -> resumed(destination, store.getCheckpoint(destination)));
+		return verified(
+			store.getAtoms(destination),
+			network,
+			destination,
+			Atom.class,
+			DEDUPE_WINDOW,
+			atom -> store.contains(destination, atom.getHid())
+		).doOnNext(update -> {
+			if (!update.isHistoryEnd()) {
+				store.store(destination, update.getAtom());
+			}
+		});
+	}
+
+	/**
+	 * Queries the atoms of a destination from the network: the stored history page by page,
+	 * the end of history once, and then new atoms as they arrive. Retries go to another node
+	 * and continue from a few atoms before the last one received rather than from the start,
+	 * as the next node may serve the latest atoms in a different order.
+	 */
+	private Observable<AtomQueryUpdate<Atom>> resumed(EUID destination, Optional<AtomCursor> start) {
+		final AtomQuery<Atom> atomQuery = new AtomQuery<>(destination, Atom.class);
+		return Observable.defer(() -> {
+			final Deque<EUID> received = new ArrayDeque<>(RESUME_OVERLAP + 1);
+			final Set<EUID> rejected = ConcurrentHashMap.newKeySet();
+			final AtomicBoolean historyEnded = new AtomicBoolean(false);
+			return Observable.defer(() -> {
+				final Optional<AtomCursor> cursor = received.size() > RESUME_OVERLAP
+					? Optional.of(AtomCursor.after(received.getFirst()))
+					: start;
+				final AtomQuery<Atom> resumeQuery = cursor.map(atomQuery::after).orElse(atomQuery);
+				return radixNetwork.getRadixClient(destination.getShard())
+					.flatMapObservable(client -> Observable.concat(
+						validated(
+							client,
+							client.getAtomHistory(resumeQuery, HISTORY_PAGE_SIZE, HISTORY_PREFETCH_PAGES).toObservable(),
+							rejected
+						).map(AtomQueryUpdate::of),
+						Observable.defer(() -> historyEnded.compareAndSet(false, true)
+							? Observable.just(AtomQueryUpdate.<Atom>historyEnd())
+							: Observable.<AtomQueryUpdate<Atom>>empty()
+						),
+						// New atoms continue right after the last atom received
+						Observable.defer(() -> {
+							final AtomQuery<Atom> liveQuery = received.isEmpty()
+								? resumeQuery
+								: atomQuery.after(AtomCursor.after(received.getLast()));
+							return validated(client, client.getAtoms(liveQuery), rejected).map(AtomQueryUpdate::of);
+						})
+					));
 			})
+				.doOnNext(update -> {
+					if (update.isHistoryEnd()) {
+						return;
+					}
+					received.addLast(update.getAtom().getHid());
+					if (received.size() > RESUME_OVERLAP + 1) {
+						received.removeFirst();
+					}
+				})
+				.doOnError(Throwable::printStackTrace)
+				.retryWhen(new RetryTimer(queryRetryPolicy));
+		});
+	}
+
+	/**
+	 * Returns a backpressured stream of the atoms at a destination, for consumers which
+	 * may fall behind the network such as ones writing atoms to a database. Each subscriber
+	 * gets its own buffer, so a slow subscriber does not hold back others.
+	 * <p>
+	 * Dropping strategies lose atoms, so consumers which fold atoms into state, such as
+	 * balances, must use {@link BackpressureStrategy#BUFFER} or {@link BackpressureStrategy#ERROR}
+	 * here and apply any other strategy to what they derive from the atoms.
+	 *
+	 * @param destination destination (which determines shard) to query atoms for
+	 * @param atomClass atom class type to filter for
+	 * @param strategy what to do with atoms received before the subscriber requests them
+	 * @return a new Flowable Atom Query
+	 */
+	public <T extends Atom> Flowable<T> getAllAtoms(EUID destination, Class<T> atomClass, BackpressureStrategy strategy) {
+		return getAllAtoms(destination, atomClass).toFlowable(strategy);
+	}
+
+	/**
+	 * Returns a new hot Observable of the atoms at a destination which shares its node
+	 * subscription with other destinations watched this way. Use this instead of
+	 * {@link #getAllAtoms(EUID, Class)} when watching many destinations at once.
+	 * <p>
+	 * A retry on another node queries the destination from the start, and only the most
+	 * recent atoms are remembered to drop the ones seen before, so a destination with a
+	 * longer history can see its oldest atoms again after a retry.
+	 *
+	 * @param destination destination (which determines shard) to query atoms for
+	 * @param atomClass atom class type to filter for
+	 * @return a new Observable Atom Query
+	 */
+	public <T extends Atom> io.reactivex.Observable<T> getMultiplexedAtoms(EUID destination, Class<T> atomClass) {
+		Objects.requireNonNull(destination);
+		Objects.requireNonNull(atomClass);
+
+		final Observable<T> atoms = Observable.defer(() -> {
+			final Set<EUID> rejected = ConcurrentHashMap.newKeySet();
+			return radixNetwork.getRadixClient(destination.getShard())
+				.flatMapObservable(client -> validated(
+					client,
+					client.getAtomMultiplexer().getAtoms(destination, atomClass),
+					rejected
+				))
+				.doOnError(Throwable::printStackTrace)
+				.retryWhen(new RetryTimer(queryRetryPolicy));
+		});
+		return verified(Observable.empty(), atoms.map(AtomQueryUpdate::of), destination, atomClass, DEDUPE_WINDOW, atom -> false)
+			.map(AtomQueryUpdate::getAtom)
+			.publish()
+			.refCount();
+	}
+
+	/**
+	 * Deduplicates the atoms of a destination, first the ones known locally and then the
+	 * ones from the network. The given number of most recent atoms are remembered by hash,
+	 * network atoms not among them are checked against seenBefore.
+	 */
+	private <T extends Atom> Observable<AtomQueryUpdate<T>> verified(
+		Observable<T> known,
+		Observable<AtomQueryUpdate<T>> network,
+		EUID destination,
+		Class<T> atomClass,
+		int window,
+		Predicate<T> seenBefore
+	) {
+		// Atoms seen are tracked per subscription, a new subscription queries the atoms again
+		return Observable.defer(() -> {
+			final RecentHashSet atomsSeen = new RecentHashSet(window);
+			return Observable.concat(
+				known.doOnNext(atom -> atomsSeen.add(atom.getHash())).map(AtomQueryUpdate::of),
+				network.filter(update -> {
+					if (update.isHistoryEnd()) {
+						return true;
+					}
+
+					final T atom = update.getAtom();
+					if (!atomsSeen.add(atom.getHash()) || seenBefore.test(atom)) {
+						LOGGER.warn("Atom Already Seen: destination({}) atom({})", destination, atom);
+						return false;
+					}
+
+					return true;
+				})
+			);
+		})
 			.doOnSubscribe(
 				atoms -> LOGGER.info(
 					"Atom Query Subscribe: destination({}) class({})",
 					destination, atomClass.getSimpleName()
 				)
-			)
-			.publish()
-			.refCount();
+			);
+	}
+
+	/**
+	 * Validates the atoms served by a node, in parallel but keeping their order. Atoms
+	 * without signatures to check are cheap to validate so are validated in place. If an
+	 * atom is invalid the node is not trusted for a while and the stream fails so that it
+	 * is retried on another node. An atom which was already rejected before in the same
+	 * query is served by several nodes, so it is on the ledger but fails the local
+	 * validation. It is skipped rather than failing every node in turn. Valid atoms let a
+	 * node which is trusted again start over from the shortest untrusted period.
+	 */
+	private <T extends Atom> Observable<T> validated(RadixJsonRpcClient client, Observable<T> atoms, Set<EUID> rejected) {
+		final Scheduler scheduler = validationScheduler;
+		return atoms
+			.concatMapEager(atom -> {
+				final Observable<T> validated = Observable.defer(() -> {
+					try {
+						RadixAtomValidator.getInstance().validate(atom);
+						return Observable.just(atom);
+					} catch (AtomValidationException e) {
+						if (rejected.add(atom.getHid())) {
+							return Observable.error(e);
+						}
+						LOGGER.error("Skipping atom {} which was served invalid again by {}: {}",
+							atom.getHid(), client, e.toString());
+						return Observable.empty();
+					}
+				});
+				return atom.getParticles().stream().anyMatch(Particle::isConsumer) ? validated.subscribeOn(scheduler) : validated;
+			}, validationConcurrency, 1)
+			.doOnNext(atom -> client.getHealth().markValid())
+			.doOnError(e -> {
+				if (e instanceof AtomValidationException) {
+					LOGGER.error("Invalid atom from {}, not trusted for a while: {}", client, e.toString());
+					client.getHealth().markUntrusted();
+				}
+			});
+	}
+
+	/**
+	 * Fetches a single atom stored at a destination, hedging the request if the first
+	 * node is slow to answer.
+	 *
+	 * @param destination destination (which determines shard) the atom is stored at
+	 * @param hid hid of the atom
+	 * @return the atom, or empty if the node does not know of it
+	 */
+	public Maybe<Atom> getAtom(EUID destination, EUID hid) {
+		Objects.requireNonNull(destination);
+		Objects.requireNonNull(hid);
+
+		return hedged(destination.getShard(), client -> client.getAtom(hid).toObservable())
+			.firstElement();
+	}
+
+	/**
+	 * Sends a single-shot read to a node serving a shard, and to a second one as well if
+	 * the first is slower than usual to answer. Whichever emits first is used.
+	 */
+	private <T> Observable<T> hedged(Long shard, Function<RadixJsonRpcClient, Observable<T>> request) {
+		return radixNetwork.getRadixClient(shard).flatMapObservable(primary -> {
+			final double percentile = hedgePercentile;
+			final Optional<RadixJsonRpcClient> secondary = percentile > 0
+				? radixNetwork.getAlternativeRadixClient(Collections.singleton(shard), primary)
+				: Optional.empty();
+			if (!secondary.isPresent()) {
+				return request.apply(primary);
+			}
+
+			final long delay = (long) primary.getHealth().getLatencyPercentileMillis(percentile);
+			return Observable.amb(Arrays.asList(
+				request.apply(primary),
+				Observable.defer(() -> request.apply(secondary.get())).delaySubscription(delay, TimeUnit.MILLISECONDS)
+			));
+		});
 	}
 
 	/**
@@ -134,7 +601,7 @@ public class RadixLedger {
 			//.doOnSuccess(client -> logger.info("Found client to submit atom: " + client.getLocation()))
 			.flatMapObservable(client -> client.submitAtom(atom))
 			.doOnError(Throwable::printStackTrace)
-			.retryWhen(new IncreasingRetryTimer());
+			.retryWhen(new RetryTimer(submissionRetryPolicy));
 
 		if (debug.get()) {
 			try {
@@ -0,0 +1,175 @@
+package com.radixdlt.client.core.ledger;
+
+import com.radixdlt.client.core.atoms.RadixHash;
+import java.util.Arrays;
+
+/**
+ * Set of the most recently added atom hashes, used to drop atoms already seen on a
+ * stream. Hashes are looked up by their first 64 bits in an open addressing table of
+ * primitive longs, and a match is confirmed against the full hash so that atoms sharing
+ * a prefix are never taken for each other. Once the set is full the oldest hash is
+ * forgotten for every new one. Memory is bounded by the maximum size and adding does
+ * not allocate once the table has grown to it.
+ */
+class RecentHashSet {
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Marks a free slot. A hash starting with 64 zero bits is kept as 1 instead.
+	 */
+	private static final long EMPTY = 0;
+
+	private final int maxSize;
+
+	/**
+	 * Linear probing table, a power of two in size and at most half full
+	 */
+	private long[] table;
+
+	/**
+	 * Full hash of the key in the same slot of the table
+	 */
+	private RadixHash[] hashes;
+
+	/**
+	 * Prefixes in the order they were added, used as a ring once the set is full
+	 */
+	private long[] order;
+	private int size = 0;
+	private int oldest = 0;
+
+	/**
+	 * @param maxSize number of most recent hashes remembered
+	 */
+	RecentHashSet(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Size must be positive: " + maxSize);
+		}
+
+		this.maxSize = maxSize;
+		final int initial = Math.min(maxSize, INITIAL_CAPACITY);
+		this.table = new long[tableSizeFor(initial)];
+		this.hashes = new RadixHash[table.length];
+		this.order = new long[initial];
+	}
+
+	private static int tableSizeFor(int capacity) {
+		return Integer.highestOneBit(Math.max(capacity, 1) * 4 - 1);
+	}
+
+	/**
+	 * @param hash hash to add
+	 * @return true if the hash was not in the set
+	 */
+	boolean add(RadixHash hash) {
+		final long key = keyOf(hash);
+		final int found = find(key);
+		if (table[found] == key) {
+			if (hashes[found].equals(hash)) {
+				return false;
+			}
+
+			// Another hash with the same prefix, only the latest of the two is remembered
+			hashes[found] = hash;
+			return true;
+		}
+
+		if (size == maxSize) {
+			remove(order[oldest]);
+			order[oldest] = key;
+			oldest = (oldest + 1) % maxSize;
+		} else {
+			if (size == order.length) {
+				grow();
+			}
+			order[size] = key;
+			size++;
+		}
+
+		final int free = find(key);
+		table[free] = key;
+		hashes[free] = hash;
+		return true;
+	}
+
+	boolean contains(RadixHash hash) {
+		final long key = keyOf(hash);
+		final int found = find(key);
+		return table[found] == key && hashes[found].equals(hash);
+	}
+
+	int size() {
+		return size;
+	}
+
+	private static long keyOf(RadixHash hash) {
+		final long prefix = hash.getLongPrefix();
+		return prefix == EMPTY ? 1 : prefix;
+	}
+
+	private int slot(long key) {
+		return (int) (key ^ (key >>> 32)) & (table.length - 1);
+	}
+
+	/**
+	 * @return the slot holding the key, or the free slot it would go in
+	 */
+	private int find(long key) {
+		final int mask = table.length - 1;
+		int i = slot(key);
+		while (table[i] != EMPTY && table[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Removes a key, shifting back the keys probed past it so that no tombstones are needed
+	 */
+	private void remove(long key) {
+		final int mask = table.length - 1;
+		int free = find(key);
+		if (table[free] != key) {
+			return;
+		}
+		table[free] = EMPTY;
+		hashes[free] = null;
+
+		int i = free;
+		while (true) {
+			i = (i + 1) & mask;
+			final long moved = table[i];
+			if (moved == EMPTY) {
+				return;
+			}
+
+			// A key can move back unless its home slot lies after the free slot, up to where it is
+			final int home = slot(moved);
+			final boolean stays = free <= i ? (free < home && home <= i) : (free < home || home <= i);
+			if (!stays) {
+				table[free] = moved;
+				hashes[free] = hashes[i];
+				table[i] = EMPTY;
+				hashes[i] = null;
+				free = i;
+			}
+		}
+	}
+
+	private void grow() {
+		final int capacity = (int) Math.min((long) order.length * 2, maxSize);
+		order = Arrays.copyOf(order, capacity);
+
+		final long[] oldTable = table;
+		final RadixHash[] oldHashes = hashes;
+		table = new long[tableSizeFor(capacity)];
+		hashes = new RadixHash[table.length];
+		for (int i = 0; i < oldTable.length; i++) {
+			if (oldTable[i] != EMPTY) {
+				final int free = find(oldTable[i]);
+				table[free] = oldTable[i];
+				hashes[free] = oldHashes[i];
+			}
+		}
+	}
+}
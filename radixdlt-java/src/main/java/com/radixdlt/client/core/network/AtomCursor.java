@@ -0,0 +1,89 @@
+package com.radixdlt.client.core.network;
+
+import com.google.gson.JsonObject;
+import com.radixdlt.client.core.address.EUID;
+import com.radixdlt.client.core.atoms.Atom;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A position in the history of a destination, after which a query continues. Either the
+ * hid of the last atom received, which the node resolves to where that atom sits in the
+ * order it serves atoms in, or a timestamp.
+ * <p>
+ * Atom timestamps are set by the clients which created the atoms, so an atom which reached
+ * the node after a newer one can carry an older timestamp and be skipped by a timestamp
+ * cursor. Prefer {@link #after(Atom)} to resume a query.
+ */
+public final class AtomCursor {
+	private final Long timestamp;
+	private final EUID hid;
+
+	private AtomCursor(Long timestamp, EUID hid) {
+		this.timestamp = timestamp;
+		this.hid = hid;
+	}
+
+	/**
+	 * @param timestamp the atom timestamp to continue from, inclusive
+	 * @return a cursor at the timestamp
+	 */
+	public static AtomCursor since(long timestamp) {
+		return new AtomCursor(timestamp, null);
+	}
+
+	/**
+	 * @param atom the last atom received
+	 * @return a cursor right after the atom in the node's order
+	 */
+	public static AtomCursor after(Atom atom) {
+		return after(atom.getHid());
+	}
+
+	/**
+	 * @param hid the hid of the last atom received
+	 * @return a cursor right after the atom in the node's order
+	 */
+	public static AtomCursor after(EUID hid) {
+		return new AtomCursor(null, Objects.requireNonNull(hid));
+	}
+
+	public Optional<Long> getTimestamp() {
+		return Optional.ofNullable(timestamp);
+	}
+
+	public Optional<EUID> getHid() {
+		return Optional.ofNullable(hid);
+	}
+
+	public JsonObject toJson() {
+		JsonObject cursor = new JsonObject();
+		if (timestamp != null) {
+			cursor.addProperty("timestamp", timestamp);
+		}
+		if (hid != null) {
+			cursor.addProperty("hid", hid.toString());
+		}
+		return cursor;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof AtomCursor)) {
+			return false;
+		}
+
+		AtomCursor other = (AtomCursor) o;
+		return Objects.equals(other.timestamp, timestamp) && Objects.equals(other.hid, hid);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(timestamp, hid);
+	}
+
+	@Override
+	public String toString() {
+		return hid == null ? String.valueOf(timestamp) : hid.toString();
+	}
+}
@@ -1,19 +1,47 @@
 package com.radixdlt.client.core.network;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.radixdlt.client.core.address.EUID;
 import com.radixdlt.client.core.atoms.Atom;
 import com.radixdlt.client.core.serialization.SerializedAtomType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 public class AtomQuery<T extends Atom> {
-	private final EUID destination;
+	private final List<EUID> destinations;
 	private final SerializedAtomType atomType;
 	private final Class<T> atomClass;
+	private final AtomCursor cursor;
+	private final Integer limit;
 
 	public AtomQuery(EUID destination, Class<T> atomClass) {
-		this.destination = destination;
+		this(Collections.singletonList(destination), atomClass, null, null);
+	}
+
+	/**
+	 * Creates a query for the atoms of any of a number of destinations, so that they
+	 * can be subscribed to at once.
+	 *
+	 * @param destinations destinations to query atoms for
+	 * @param atomClass atom class type to filter for
+	 */
+	public AtomQuery(Collection<EUID> destinations, Class<T> atomClass) {
+		this(Collections.unmodifiableList(new ArrayList<>(destinations)), atomClass, null, null);
+	}
+
+	private AtomQuery(List<EUID> destinations, Class<T> atomClass, AtomCursor cursor, Integer limit) {
+		if (destinations.isEmpty()) {
+			throw new IllegalArgumentException("Query must have at least one destination");
+		}
+
+		this.destinations = destinations;
 		this.atomClass = atomClass;
+		this.cursor = cursor;
+		this.limit = limit;
 
 		if (atomClass == Atom.class) {
 			this.atomType = null;
@@ -30,22 +58,80 @@ public class AtomQuery<T extends Atom> {
 		return Optional.ofNullable(atomType);
 	}
 
+	/**
+	 * @return the destination of a single destination query
+	 * @throws IllegalStateException if the query is for several destinations
+	 */
 	public EUID getDestination() {
-		return destination;
+		if (destinations.size() != 1) {
+			throw new IllegalStateException("Query has " + destinations.size() + " destinations");
+		}
+		return destinations.get(0);
+	}
+
+	public List<EUID> getDestinations() {
+		return destinations;
 	}
 
 	public Class<T> getAtomClass() {
 		return atomClass;
 	}
 
+	/**
+	 * Returns the same query restricted to atoms after a cursor, used to page through
+	 * history or to continue from a checkpoint saved before a restart.
+	 *
+	 * @param cursor the position to continue after
+	 * @return a new query which starts after the cursor
+	 */
+	public AtomQuery<T> after(AtomCursor cursor) {
+		return new AtomQuery<>(destinations, atomClass, cursor, limit);
+	}
+
+	public Optional<AtomCursor> getCursor() {
+		return Optional.ofNullable(cursor);
+	}
+
+	/**
+	 * Returns the same query returning at most a given number of atoms, oldest first.
+	 *
+	 * @param limit maximum number of atoms to return
+	 * @return a new query with the limit
+	 */
+	public AtomQuery<T> limit(int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Limit must be positive: " + limit);
+		}
+
+		return new AtomQuery<>(destinations, atomClass, cursor, limit);
+	}
+
+	public Optional<Integer> getLimit() {
+		return Optional.ofNullable(limit);
+	}
+
 	public JsonObject toJson() {
 		JsonObject query = new JsonObject();
-		query.addProperty("destination", destination.bigInteger());
+		if (destinations.size() == 1) {
+			query.addProperty("destination", destinations.get(0).bigInteger());
+		} else {
+			JsonArray array = new JsonArray();
+			destinations.forEach(destination -> array.add(destination.bigInteger()));
+			query.add("destinations", array);
+		}
 
 		if (atomType != null) {
 			query.addProperty("atomSerializer", atomType.getSerializer());
 		}
 
+		if (cursor != null) {
+			query.add("cursor", cursor.toJson());
+		}
+
+		if (limit != null) {
+			query.addProperty("limit", limit);
+		}
+
 		return query;
 	}
 }
@@ -0,0 +1,201 @@
+package com.radixdlt.client.core.network;
+
+import com.radixdlt.client.core.address.EUID;
+import com.radixdlt.client.core.atoms.Atom;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Shares atom subscriptions on one connection between many destinations. Destinations
+ * registered within a short window are subscribed to together with a single multi-destination
+ * query, and the atoms received are handed to the watchers of each of their destinations in
+ * one routing step. A batch subscription is cancelled once none of its destinations are
+ * watched anymore.
+ */
+public class AtomSubscriptionMultiplexer {
+	private static final int DEFAULT_BATCH_SIZE = 100;
+	private static final long DEFAULT_BATCH_WINDOW_MILLIS = 50;
+
+	private static class Batch {
+		private final Set<EUID> destinations = ConcurrentHashMap.newKeySet();
+		private final CompositeDisposable disposable = new CompositeDisposable();
+	}
+
+	private static class Destination {
+		private final Subject<Atom> atoms = PublishSubject.<Atom>create().toSerialized();
+		private int subscribers = 0;
+		private Batch batch;
+	}
+
+	private final Function<AtomQuery<Atom>, Observable<Atom>> source;
+	private final int batchSize;
+	private final long batchWindowMillis;
+	private final Scheduler scheduler;
+
+	private final Map<EUID, Destination> destinations = new ConcurrentHashMap<>();
+	private List<EUID> pending = new ArrayList<>();
+
+	public AtomSubscriptionMultiplexer(RadixJsonRpcClient client) {
+		this(client::getAtoms, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_WINDOW_MILLIS, Schedulers.computation());
+	}
+
+	/**
+	 * @param source subscribes to the atoms of a query
+	 * @param batchSize maximum number of destinations per subscription
+	 * @param batchWindowMillis how long to wait for more destinations after the first one is registered
+	 * @param scheduler scheduler on which batches are subscribed to
+	 */
+	AtomSubscriptionMultiplexer(
+		Function<AtomQuery<Atom>, Observable<Atom>> source,
+		int batchSize,
+		long batchWindowMillis,
+		Scheduler scheduler
+	) {
+		if (batchSize < 1 || batchWindowMillis < 0) {
+			throw new IllegalArgumentException("Bad batch config: window " + batchWindowMillis + "ms size " + batchSize);
+		}
+
+		this.source = source;
+		this.batchSize = batchSize;
+		this.batchWindowMillis = batchWindowMillis;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Returns a hot observable of the atoms of a destination. The destination is added to
+	 * the next batch subscription unless it is already being watched, in which case only
+	 * atoms received from now on are seen.
+	 *
+	 * @param destination destination to watch
+	 * @param atomClass atom class type to filter for
+	 * @param <T> atom type
+	 * @return observable of atoms with the destination
+	 */
+	public <T extends Atom> Observable<T> getAtoms(EUID destination, Class<T> atomClass) {
+		return Observable.defer(() -> register(destination)).ofType(atomClass);
+	}
+
+	/**
+	 * @return number of destinations currently watched
+	 */
+	public int getDestinationCount() {
+		return destinations.size();
+	}
+
+	private synchronized Observable<Atom> register(EUID euid) {
+		Destination destination = destinations.get(euid);
+		if (destination == null) {
+			destination = new Destination();
+			destinations.put(euid, destination);
+			pending.add(euid);
+
+			// Always subscribe to batches asynchronously so that the watcher is subscribed before the first atom
+			if (pending.size() >= batchSize) {
+				final List<EUID> batch = pending;
+				pending = new ArrayList<>();
+				scheduler.scheduleDirect(() -> subscribe(batch));
+			} else if (pending.size() == 1) {
+				final List<EUID> window = pending;
+				scheduler.scheduleDirect(() -> flush(window), batchWindowMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+		destination.subscribers++;
+
+		return destination.atoms.doFinally(() -> unregister(euid));
+	}
+
+	private void flush(List<EUID> window) {
+		synchronized (this) {
+			// Batch was already subscribed to because it filled up
+			if (pending != window) {
+				return;
+			}
+			pending = new ArrayList<>();
+		}
+
+		subscribe(window);
+	}
+
+	private void subscribe(List<EUID> euids) {
+		final Batch batch = new Batch();
+		synchronized (this) {
+			for (EUID euid : euids) {
+				Destination destination = destinations.get(euid);
+				// Watchers may have gone away while the batch was waiting
+				if (destination != null && destination.batch == null) {
+					destination.batch = batch;
+					batch.destinations.add(euid);
+				}
+			}
+		}
+
+		if (batch.destinations.isEmpty()) {
+			return;
+		}
+
+		batch.disposable.add(
+			source.apply(new AtomQuery<>(new ArrayList<>(batch.destinations), Atom.class))
+				.subscribe(atom -> route(batch, atom), e -> fail(batch, e))
+		);
+	}
+
+	private void route(Batch batch, Atom atom) {
+		for (EUID euid : atom.getDestinations()) {
+			if (batch.destinations.contains(euid)) {
+				Destination destination = destinations.get(euid);
+				if (destination != null) {
+					destination.atoms.onNext(atom);
+				}
+			}
+		}
+	}
+
+	private void fail(Batch batch, Throwable e) {
+		final List<Destination> failed = new ArrayList<>();
+		synchronized (this) {
+			for (EUID euid : batch.destinations) {
+				Destination destination = destinations.remove(euid);
+				if (destination != null) {
+					failed.add(destination);
+				}
+			}
+			batch.destinations.clear();
+		}
+
+		failed.forEach(destination -> destination.atoms.onError(e));
+	}
+
+	private void unregister(EUID euid) {
+		final Batch emptied;
+		synchronized (this) {
+			Destination destination = destinations.get(euid);
+			if (destination == null || --destination.subscribers > 0) {
+				return;
+			}
+
+			destinations.remove(euid);
+			pending.remove(euid);
+			if (destination.batch == null) {
+				return;
+			}
+
+			destination.batch.destinations.remove(euid);
+			emptied = destination.batch.destinations.isEmpty() ? destination.batch : null;
+		}
+
+		if (emptied != null) {
+			emptied.disposable.dispose();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.radixdlt.client.core.network;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Stops requests from being sent to a peer after a number of consecutive failures.
+ * Once a cool down has passed the breaker lets requests through again on trial and
+ * closes on the first success or opens again on the first failure.
+ */
+public class CircuitBreaker {
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openMillis;
+	private final LongSupplier clock;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures = 0;
+	private long openedAt;
+
+	public CircuitBreaker(int failureThreshold, long openMillis) {
+		this(failureThreshold, openMillis, System::currentTimeMillis);
+	}
+
+	public CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+		this.clock = clock;
+	}
+
+	public synchronized State getState() {
+		if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) {
+			state = State.HALF_OPEN;
+		}
+		return state;
+	}
+
+	/**
+	 * @return true unless the breaker is open
+	 */
+	public boolean allowsRequests() {
+		return getState() != State.OPEN;
+	}
+
+	public synchronized int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	public synchronized void recordSuccess() {
+		consecutiveFailures = 0;
+		state = State.CLOSED;
+	}
+
+	public synchronized void recordFailure() {
+		consecutiveFailures++;
+		if (getState() == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+			state = State.OPEN;
+			openedAt = clock.getAsLong();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.radixdlt.client.core.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import okio.ByteString;
+
+/**
+ * Compresses messages into binary websocket frames using the payload format of
+ * permessage-deflate (RFC 7692): raw deflate, flushed per message with the trailing
+ * empty block removed. No context is kept between messages.
+ */
+class DeflateFrameCodec {
+	private static final ByteString TRAILER = ByteString.of((byte) 0x00, (byte) 0x00, (byte) 0xff, (byte) 0xff);
+
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	private final Inflater inflater = new Inflater(true);
+	private final byte[] buffer = new byte[8192];
+
+	synchronized ByteString encode(String message) {
+		deflater.reset();
+		deflater.setInput(message.getBytes(StandardCharsets.UTF_8));
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		int length;
+		do {
+			length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+			output.write(buffer, 0, length);
+		} while (length == buffer.length);
+
+		ByteString compressed = ByteString.of(output.toByteArray());
+		return compressed.endsWith(TRAILER) ? compressed.substring(0, compressed.size() - TRAILER.size()) : compressed;
+	}
+
+	synchronized String decode(ByteString frame) throws IOException {
+		inflater.reset();
+		inflater.setInput(frame.toByteArray());
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try {
+			inflate(output);
+			inflater.setInput(TRAILER.toByteArray());
+			inflate(output);
+		} catch (DataFormatException e) {
+			throw new IOException("Bad compressed frame: " + e.getMessage(), e);
+		}
+
+		return new String(output.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private void inflate(ByteArrayOutputStream output) throws DataFormatException {
+		while (!inflater.needsInput() && !inflater.finished()) {
+			int length = inflater.inflate(buffer);
+			if (length == 0 && inflater.needsDictionary()) {
+				throw new DataFormatException("Preset dictionary not supported");
+			}
+			output.write(buffer, 0, length);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.radixdlt.client.core.network;
+
+import java.util.Random;
+
+/**
+ * Exponentially growing delays with jitter, so that clients which lost their
+ * connection at the same time do not all come back at the same time.
+ */
+public class ExponentialBackoff {
+	private final long baseMillis;
+	private final long maxMillis;
+	private final Random random;
+
+	public ExponentialBackoff(long baseMillis, long maxMillis) {
+		this(baseMillis, maxMillis, new Random());
+	}
+
+	public ExponentialBackoff(long baseMillis, long maxMillis, Random random) {
+		if (baseMillis <= 0 || maxMillis < baseMillis) {
+			throw new IllegalArgumentException("Bad backoff: base " + baseMillis + "ms max " + maxMillis + "ms");
+		}
+
+		this.baseMillis = baseMillis;
+		this.maxMillis = maxMillis;
+		this.random = random;
+	}
+
+	/**
+	 * Returns the delay before a given attempt: the base delay doubled for every
+	 * previous attempt, capped at the maximum, of which a random half is jitter.
+	 *
+	 * @param attempt number of the attempt, starting at 1
+	 * @return delay in milliseconds
+	 */
+	public long getDelayMillis(int attempt) {
+		final long exponential = baseMillis << Math.min(Math.max(attempt - 1, 0), 30);
+		final long capped = Math.min(maxMillis, exponential);
+		final long half = capped / 2;
+		return half + (long) (random.nextDouble() * (capped - half));
+	}
+}
@@ -0,0 +1,45 @@
+package com.radixdlt.client.core.network;
+
+import java.util.function.Predicate;
+
+/**
+ * Retries errors matching a predicate with exponential backoff and jitter, until
+ * either a maximum number of attempts or a deadline is reached.
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+	private final ExponentialBackoff backoff;
+	private final int maxAttempts;
+	private final long deadlineMillis;
+	private final Predicate<Throwable> retryIf;
+
+	/**
+	 * @param backoff the delays between attempts
+	 * @param maxAttempts maximum number of retries
+	 * @param deadlineMillis time after the first attempt after which no retry is started
+	 * @param retryIf which errors are worth retrying
+	 */
+	public ExponentialBackoffRetryPolicy(ExponentialBackoff backoff, int maxAttempts, long deadlineMillis, Predicate<Throwable> retryIf) {
+		this.backoff = backoff;
+		this.maxAttempts = maxAttempts;
+		this.deadlineMillis = deadlineMillis;
+		this.retryIf = retryIf;
+	}
+
+	public ExponentialBackoffRetryPolicy(ExponentialBackoff backoff, int maxAttempts, long deadlineMillis) {
+		this(backoff, maxAttempts, deadlineMillis, error -> true);
+	}
+
+	@Override
+	public long getRetryDelayMillis(int attempt, long elapsedMillis, Throwable error) {
+		if (attempt > maxAttempts || !retryIf.test(error)) {
+			return -1;
+		}
+
+		final long delay = backoff.getDelayMillis(attempt);
+		if (elapsedMillis + delay > deadlineMillis) {
+			return -1;
+		}
+
+		return delay;
+	}
+}
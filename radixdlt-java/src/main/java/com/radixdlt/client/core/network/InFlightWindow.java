@@ -0,0 +1,97 @@
+package com.radixdlt.client.core.network;
+
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the number of requests outstanding on a connection. Requests beyond the
+ * window are queued and started, in order, as earlier requests complete.
+ */
+public class InFlightWindow {
+	private final int maxInFlight;
+	private final AtomicInteger inFlight = new AtomicInteger(0);
+	private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+	public InFlightWindow(int maxInFlight) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("Window must allow at least one request: " + maxInFlight);
+		}
+
+		this.maxInFlight = maxInFlight;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * @return number of requests currently outstanding
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * @return number of requests waiting for a free slot in the window
+	 */
+	public int getQueued() {
+		return waiting.size();
+	}
+
+	/**
+	 * Wraps a request so that it is only subscribed to once a slot in the window is free.
+	 * The slot is released when the request completes, fails or is disposed.
+	 *
+	 * @param request the request to run within the window
+	 * @param <T> type of the response
+	 * @return the windowed request
+	 */
+	public <T> Single<T> submit(Single<T> request) {
+		return Single.create(emitter ->
+			schedule(() -> {
+				if (emitter.isDisposed()) {
+					release();
+					return;
+				}
+
+				Disposable disposable = request
+					.doFinally(this::release)
+					.subscribe(emitter::onSuccess, emitter::tryOnError);
+				emitter.setDisposable(disposable);
+			})
+		);
+	}
+
+	private void schedule(Runnable start) {
+		waiting.offer(start);
+		drain();
+	}
+
+	private void release() {
+		inFlight.decrementAndGet();
+		drain();
+	}
+
+	private void drain() {
+		while (!waiting.isEmpty()) {
+			final int current = inFlight.get();
+			if (current >= maxInFlight) {
+				return;
+			}
+
+			if (!inFlight.compareAndSet(current, current + 1)) {
+				continue;
+			}
+
+			Runnable start = waiting.poll();
+			if (start == null) {
+				inFlight.decrementAndGet();
+			} else {
+				start.run();
+			}
+		}
+	}
+}
@@ -1,20 +1,14 @@
 package com.radixdlt.client.core.network;
 
-import io.reactivex.Observable;
-import io.reactivex.ObservableSource;
-import io.reactivex.functions.Function;
-import java.util.concurrent.TimeUnit;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-public class IncreasingRetryTimer implements Function<Observable<Throwable>, ObservableSource<Long>> {
-	private static final Logger LOGGER = LoggerFactory.getLogger(IncreasingRetryTimer.class);
-
-	@Override
-	public ObservableSource<Long> apply(Observable<Throwable> attempts) {
-		return attempts.zipWith(Observable.range(1, 300), (n, i) -> i)
-			.map(i -> Math.min(i * i, 100))
-			.doOnNext(i -> LOGGER.info("Connection lost. Retrying in " + i + " seconds..."))
-			.flatMap(i -> Observable.timer(i, TimeUnit.SECONDS));
+/**
+ * Retries up to 300 times with a quadratically increasing delay capped at 100 seconds.
+ *
+ * @deprecated use a {@link RetryTimer} with a {@link RetryPolicy} such as
+ * {@link ExponentialBackoffRetryPolicy}, which adds jitter and deadlines
+ */
+@Deprecated
+public class IncreasingRetryTimer extends RetryTimer {
+	public IncreasingRetryTimer() {
+		super((attempt, elapsedMillis, error) -> attempt > 300 ? -1 : Math.min(attempt * attempt, 100) * 1000L);
 	}
 }
@@ -0,0 +1,104 @@
+package com.radixdlt.client.core.network;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.radixdlt.client.core.serialization.RadixJson;
+import io.reactivex.Scheduler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Coalesces JSON-RPC requests issued within a short window, or up to a maximum
+ * batch size, into a single JSON-RPC 2.0 batch array frame.
+ */
+class JsonRpcBatcher {
+	private static class PendingRequest {
+		private final JsonObject request;
+		private final Consumer<Throwable> onSendFailure;
+
+		private PendingRequest(JsonObject request, Consumer<Throwable> onSendFailure) {
+			this.request = request;
+			this.onSendFailure = onSendFailure;
+		}
+	}
+
+	private final Predicate<String> sender;
+	private final long windowMillis;
+	private final int maxBatchSize;
+	private final Scheduler scheduler;
+
+	private List<PendingRequest> pending = new ArrayList<>();
+
+	/**
+	 * @param sender sends a raw frame, returning false if the frame could not be sent
+	 * @param windowMillis how long to wait for more requests after the first one is queued
+	 * @param maxBatchSize number of requests which causes a batch to be sent immediately
+	 * @param scheduler scheduler on which windows are timed
+	 */
+	JsonRpcBatcher(Predicate<String> sender, long windowMillis, int maxBatchSize, Scheduler scheduler) {
+		if (windowMillis < 0 || maxBatchSize < 1) {
+			throw new IllegalArgumentException("Bad batch config: window " + windowMillis + "ms size " + maxBatchSize);
+		}
+
+		this.sender = sender;
+		this.windowMillis = windowMillis;
+		this.maxBatchSize = maxBatchSize;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Queues a request to be sent with the next batch.
+	 *
+	 * @param request the JSON-RPC request object
+	 * @param onSendFailure called if the batch containing the request could not be sent
+	 */
+	void send(JsonObject request, Consumer<Throwable> onSendFailure) {
+		final List<PendingRequest> batch;
+		synchronized (this) {
+			pending.add(new PendingRequest(request, onSendFailure));
+			if (pending.size() >= maxBatchSize) {
+				batch = pending;
+				pending = new ArrayList<>();
+			} else {
+				if (pending.size() == 1) {
+					final List<PendingRequest> window = pending;
+					scheduler.scheduleDirect(() -> flush(window), windowMillis, TimeUnit.MILLISECONDS);
+				}
+				return;
+			}
+		}
+
+		sendBatch(batch);
+	}
+
+	private void flush(List<PendingRequest> window) {
+		synchronized (this) {
+			// Batch was already sent because it filled up
+			if (pending != window) {
+				return;
+			}
+			pending = new ArrayList<>();
+		}
+
+		sendBatch(window);
+	}
+
+	private void sendBatch(List<PendingRequest> batch) {
+		final String frame;
+		if (batch.size() == 1) {
+			frame = RadixJson.getGson().toJson(batch.get(0).request);
+		} else {
+			JsonArray requests = new JsonArray();
+			batch.forEach(pendingRequest -> requests.add(pendingRequest.request));
+			frame = RadixJson.getGson().toJson(requests);
+		}
+
+		if (!sender.test(frame)) {
+			RuntimeException e = new RuntimeException("Could not connect.");
+			batch.forEach(pendingRequest -> pendingRequest.onSendFailure.accept(e));
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.radixdlt.client.core.network;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+
+/**
+ * Decodes items on a pool of worker threads, a bounded number at a time, while still
+ * emitting the results in the order the items arrived. Items which are cheap to decode
+ * are decoded in place as handing them to another thread would cost more than it saves.
+ */
+class OrderedDecoder {
+	private final Scheduler scheduler;
+	private final int maxConcurrency;
+
+	/**
+	 * @param scheduler scheduler whose workers decode items
+	 * @param maxConcurrency maximum number of items being decoded at once
+	 */
+	OrderedDecoder(Scheduler scheduler, int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("Must decode at least one item at a time: " + maxConcurrency);
+		}
+
+		this.scheduler = scheduler;
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * @param decoder decodes one item
+	 * @param inline whether an item is cheap enough to decode on the calling thread
+	 * @param <T> type of the encoded items
+	 * @param <R> type of the decoded items
+	 * @return transformer decoding a stream of items in order
+	 */
+	<T, R> ObservableTransformer<T, R> decode(Function<T, R> decoder, Predicate<T> inline) {
+		return upstream -> upstream.concatMapEager(item -> {
+			Observable<R> decoded = Observable.fromCallable(() -> decoder.apply(item));
+			return inline.test(item) ? decoded : decoded.subscribeOn(scheduler);
+		}, maxConcurrency, 1);
+	}
+}
@@ -0,0 +1,256 @@
+package com.radixdlt.client.core.network;
+
+import com.radixdlt.client.core.atoms.Shards;
+import com.radixdlt.client.core.network.WebSocketClient.RadixClientStatus;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.SerialDisposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens connections to discovered peers ahead of their first use and checks that the
+ * node runner data they report for themselves matches what they were discovered with.
+ * <p>
+ * Peers are only connected to while some shard of their range is served by fewer than a
+ * given number of connected peers, and never more than a given number of peers in total.
+ * Discovered peers are collected for a short while and the best ranked by their
+ * {@link PeerHealth} are connected to first. If a handshake fails, or a connection is lost
+ * later on, the next best peer waiting is tried instead. Peers reporting other shards than
+ * they were discovered with are rejected, see {@link #getRejectedPeers()}.
+ */
+public class PeerHandshake {
+	private static final Logger LOGGER = LoggerFactory.getLogger(PeerHandshake.class);
+
+	private static final int DEFAULT_MAX_CONCURRENT = 8;
+	private static final int DEFAULT_PEERS_PER_SHARD_RANGE = 2;
+	private static final int DEFAULT_MAX_CONNECTIONS = 16;
+	private static final long TIMEOUT_SECONDS = 10;
+
+	/**
+	 * How long discovered peers are collected before the best of them are connected to
+	 */
+	private static final long SETTLE_MILLIS = 250;
+
+	private final int peersPerShardRange;
+	private final int maxConnections;
+	private final Function<RadixPeer, Single<NodeRunnerData>> handshake;
+	private final Scheduler scheduler;
+
+	/**
+	 * Peers waiting to be connected to, guarded by this
+	 */
+	private final List<RadixPeer> waiting = new ArrayList<>();
+
+	/**
+	 * Peers being connected to or connected, guarded by this
+	 */
+	private final Set<RadixPeer> active = new HashSet<>();
+	private final ShardRangeIndex<RadixPeer> coverage = new ShardRangeIndex<>();
+
+	/**
+	 * Watches for the connection of each connected peer failing, guarded by this
+	 */
+	private final Map<RadixPeer, Disposable> statusWatches = new HashMap<>();
+
+	private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+	private final Subject<RadixPeer> handshakes = PublishSubject.<RadixPeer>create().toSerialized();
+	private final Subject<RadixPeer> rejected = PublishSubject.<RadixPeer>create().toSerialized();
+	private final SerialDisposable drainTimer = new SerialDisposable();
+	private final CompositeDisposable disposables = new CompositeDisposable(drainTimer);
+
+	public PeerHandshake() {
+		this(DEFAULT_MAX_CONCURRENT, DEFAULT_PEERS_PER_SHARD_RANGE, DEFAULT_MAX_CONNECTIONS);
+	}
+
+	/**
+	 * @param maxConcurrent maximum number of connections being set up at the same time
+	 * @param peersPerShardRange number of peers to keep connected to for every shard
+	 * @param maxConnections maximum number of peers to keep connected to in total
+	 */
+	public PeerHandshake(int maxConcurrent, int peersPerShardRange, int maxConnections) {
+		this(maxConcurrent, peersPerShardRange, maxConnections, peer -> peer.getRadixClient().getSelf(), Schedulers.computation());
+	}
+
+	PeerHandshake(
+		int maxConcurrent,
+		int peersPerShardRange,
+		int maxConnections,
+		Function<RadixPeer, Single<NodeRunnerData>> handshake,
+		Scheduler scheduler
+	) {
+		if (maxConcurrent < 1 || peersPerShardRange < 1 || maxConnections < 1) {
+			throw new IllegalArgumentException(
+				"Bad handshake config: " + maxConcurrent + " concurrent " + peersPerShardRange + " per range "
+					+ maxConnections + " connections"
+			);
+		}
+
+		this.peersPerShardRange = peersPerShardRange;
+		this.maxConnections = maxConnections;
+		this.handshake = handshake;
+		this.scheduler = scheduler;
+		this.disposables.add(handshakes
+			.flatMap(peer -> shake(peer).toObservable(), maxConcurrent)
+			.subscribe());
+	}
+
+	/**
+	 * Queues a newly discovered peer for a handshake
+	 *
+	 * @param peer a newly discovered peer
+	 */
+	public void offer(RadixPeer peer) {
+		synchronized (this) {
+			waiting.add(peer);
+		}
+
+		if (drainScheduled.compareAndSet(false, true)) {
+			drainTimer.set(scheduler.scheduleDirect(() -> {
+				drainScheduled.set(false);
+				drain();
+			}, SETTLE_MILLIS, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	/**
+	 * @return hot observable of the peers which reported other shards than they were
+	 * discovered with and should no longer be used
+	 */
+	public Observable<RadixPeer> getRejectedPeers() {
+		return rejected;
+	}
+
+	private static double score(RadixPeer peer) {
+		return peer.getRadixClient().getHealth().score(peer.getRadixClient().getInFlightCount());
+	}
+
+	/**
+	 * Starts handshakes with the best waiting peers which serve shards lacking connected
+	 * peers, for as long as the connection budget allows. Peers whose shards are not known
+	 * yet are connected to first so that their shards can be learnt.
+	 */
+	private void drain() {
+		final List<RadixPeer> started = new ArrayList<>();
+		synchronized (this) {
+			waiting.sort(Comparator.comparing((RadixPeer peer) -> peer.getData().isPresent())
+				.thenComparingDouble(PeerHandshake::score));
+			for (RadixPeer peer : new ArrayList<>(waiting)) {
+				if (active.size() >= maxConnections) {
+					break;
+				}
+
+				if (peer.getData().isPresent()) {
+					final Shards shards = peer.getData().get().getShards();
+					if (coverage.minCount(shards) >= peersPerShardRange) {
+						continue;
+					}
+					coverage.add(shards, peer);
+				}
+
+				waiting.remove(peer);
+				active.add(peer);
+				started.add(peer);
+			}
+		}
+
+		started.forEach(handshakes::onNext);
+	}
+
+	private Single<Boolean> shake(RadixPeer peer) {
+		final NodeRunnerData discovered = peer.getData().orElse(null);
+		return handshake.apply(peer)
+			.timeout(TIMEOUT_SECONDS, TimeUnit.SECONDS, scheduler)
+			.map(self -> {
+				if (discovered == null) {
+					synchronized (this) {
+						coverage.add(self.getShards(), peer);
+					}
+					peer.data(self);
+					return true;
+				}
+
+				if (!discovered.getShards().equals(self.getShards())) {
+					LOGGER.warn("Peer {} reports shards {} but was discovered with {}",
+						peer, self.getShards(), discovered.getShards());
+					rejected.onNext(peer);
+					return false;
+				}
+
+				return true;
+			})
+			.doOnError(e -> LOGGER.info("Handshake with {} failed: {}", peer, e.toString()))
+			.onErrorReturnItem(false)
+			.doOnSuccess(connected -> {
+				if (connected) {
+					watch(peer);
+				} else {
+					release(peer);
+				}
+			});
+	}
+
+	/**
+	 * Releases a connected peer once its connection fails
+	 */
+	private void watch(RadixPeer peer) {
+		final Disposable watch = peer.getRadixClient().getStatus()
+			.filter(status -> status == RadixClientStatus.FAILURE)
+			.firstElement()
+			.subscribe(failure -> release(peer));
+
+		synchronized (this) {
+			// The peer is released already if its connection failed straight away
+			if (active.contains(peer) && !disposables.isDisposed()) {
+				statusWatches.put(peer, watch);
+				return;
+			}
+		}
+		watch.dispose();
+	}
+
+	/**
+	 * Gives the connection of a failed peer to the next best peer waiting
+	 */
+	private void release(RadixPeer peer) {
+		final Disposable watch;
+		synchronized (this) {
+			if (!active.remove(peer)) {
+				return;
+			}
+			peer.getData().ifPresent(data -> coverage.remove(data.getShards(), peer));
+			watch = statusWatches.remove(peer);
+		}
+
+		if (watch != null) {
+			watch.dispose();
+		}
+		drain();
+	}
+
+	public void close() {
+		final List<Disposable> watches;
+		synchronized (this) {
+			disposables.dispose();
+			watches = new ArrayList<>(statusWatches.values());
+			statusWatches.clear();
+		}
+		watches.forEach(Disposable::dispose);
+	}
+}
@@ -0,0 +1,185 @@
+package com.radixdlt.client.core.network;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps track of how responsive a peer has been, used to rank peers when choosing
+ * which one to send a request to.
+ */
+public class PeerHealth {
+	/**
+	 * Latency assumed for a peer which has not answered any request yet. Optimistic enough
+	 * that unknown peers still get tried when the known ones are slow.
+	 */
+	static final double DEFAULT_LATENCY_MILLIS = 500.0;
+
+	/**
+	 * Weight of a new sample in the moving average
+	 */
+	private static final double ALPHA = 0.3;
+
+	/**
+	 * Consecutive failures after which no more requests are sent to the peer for a while
+	 */
+	private static final int FAILURE_THRESHOLD = 5;
+	private static final long BREAKER_OPEN_MILLIS = 30_000;
+
+	/**
+	 * How long a peer which served invalid atoms is not trusted, doubled for every repeat
+	 * up to the maximum
+	 */
+	private static final long UNTRUSTED_MILLIS = 10 * 60_000;
+	private static final long MAX_UNTRUSTED_MILLIS = 60 * 60_000;
+
+	/**
+	 * Number of recent round trip times kept for percentiles
+	 */
+	private static final int WINDOW_SIZE = 64;
+
+	private final CircuitBreaker breaker;
+	private final LongSupplier clock;
+	private final long[] recent = new long[WINDOW_SIZE];
+
+	private double latencyMillis = -1;
+	private long samples = 0;
+	private volatile long untrustedMillis = 0;
+	private volatile long untrustedUntil = 0;
+
+	public PeerHealth() {
+		this(new CircuitBreaker(FAILURE_THRESHOLD, BREAKER_OPEN_MILLIS));
+	}
+
+	public PeerHealth(CircuitBreaker breaker) {
+		this(breaker, System::currentTimeMillis);
+	}
+
+	public PeerHealth(CircuitBreaker breaker, LongSupplier clock) {
+		this.breaker = breaker;
+		this.clock = clock;
+	}
+
+	/**
+	 * Records the round trip time of a successful request to this peer
+	 *
+	 * @param millis time between sending a request and receiving its response
+	 */
+	public synchronized void recordLatency(long millis) {
+		if (samples == 0) {
+			latencyMillis = millis;
+		} else {
+			latencyMillis = ALPHA * millis + (1 - ALPHA) * latencyMillis;
+		}
+		recent[(int) (samples % WINDOW_SIZE)] = millis;
+		samples++;
+		breaker.recordSuccess();
+	}
+
+	/**
+	 * Records a request to this peer which failed because of the connection or the peer
+	 */
+	public void recordFailure() {
+		breaker.recordFailure();
+	}
+
+	/**
+	 * Records that the peer served invalid atoms. The peer is only used while no trusted
+	 * peer is available for a while, longer every time it happens again.
+	 */
+	public synchronized void markUntrusted() {
+		untrustedMillis = Math.min(untrustedMillis == 0 ? UNTRUSTED_MILLIS : untrustedMillis * 2, MAX_UNTRUSTED_MILLIS);
+		untrustedUntil = clock.getAsLong() + untrustedMillis;
+	}
+
+	/**
+	 * Records that the peer served valid atoms. Once the peer is trusted again, the next
+	 * time it serves invalid atoms counts as the first.
+	 */
+	public void markValid() {
+		if (untrustedMillis == 0) {
+			return;
+		}
+
+		synchronized (this) {
+			if (isTrusted()) {
+				untrustedMillis = 0;
+			}
+		}
+	}
+
+	public boolean isTrusted() {
+		return getUntrustedMillis() == 0;
+	}
+
+	/**
+	 * @return how long until the peer is trusted again, or 0 if it is trusted
+	 */
+	public long getUntrustedMillis() {
+		return Math.max(0, untrustedUntil - clock.getAsLong());
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		return breaker;
+	}
+
+	/**
+	 * @return false if the peer is untrusted or has failed too often recently and should not
+	 * be sent requests while other peers are available
+	 */
+	public boolean isAvailable() {
+		return isTrusted() && breaker.allowsRequests();
+	}
+
+	/**
+	 * @return true if the peer is available and its last request did not fail
+	 */
+	public boolean isHealthy() {
+		return isTrusted() && breaker.getState() == CircuitBreaker.State.CLOSED && breaker.getConsecutiveFailures() == 0;
+	}
+
+	/**
+	 * @return exponentially weighted moving average of round trip times, or a default
+	 * if the peer has not been measured yet
+	 */
+	public synchronized double getLatencyMillis() {
+		return samples == 0 ? DEFAULT_LATENCY_MILLIS : latencyMillis;
+	}
+
+	/**
+	 * @param percentile percentile between 0 and 1, e.g. 0.95
+	 * @return the given percentile of the most recent round trip times, or a default
+	 * if the peer has not been measured yet
+	 */
+	public synchronized double getLatencyPercentileMillis(double percentile) {
+		if (percentile < 0 || percentile > 1) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 1: " + percentile);
+		}
+
+		if (samples == 0) {
+			return DEFAULT_LATENCY_MILLIS;
+		}
+
+		final long[] sorted = Arrays.copyOf(recent, (int) Math.min(samples, WINDOW_SIZE));
+		Arrays.sort(sorted);
+		return sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+	}
+
+	public synchronized long getSampleCount() {
+		return samples;
+	}
+
+	/**
+	 * Expected cost of sending one more request to this peer, lower is better.
+	 *
+	 * @param inFlight number of requests already awaiting a response from this peer
+	 * @return expected latency weighted by the current load
+	 */
+	public double score(int inFlight) {
+		return getLatencyMillis() * (inFlight + 1);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return samples == 0 ? "unknown latency" : String.format("%.1fms latency", latencyMillis);
+	}
+}
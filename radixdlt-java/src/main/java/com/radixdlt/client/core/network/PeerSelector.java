@@ -0,0 +1,45 @@
+package com.radixdlt.client.core.network;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Picks a peer with the power of two choices: two candidates are sampled at random
+ * and the one with the lower latency and load score wins. This avoids both herding
+ * onto the single best peer and the poor tail of picking uniformly at random.
+ */
+public class PeerSelector {
+	private final Random random;
+
+	public PeerSelector() {
+		this(new Random());
+	}
+
+	public PeerSelector(Random random) {
+		this.random = random;
+	}
+
+	public Optional<RadixPeer> select(List<RadixPeer> candidates) {
+		if (candidates.isEmpty()) {
+			return Optional.empty();
+		}
+
+		if (candidates.size() == 1) {
+			return Optional.of(candidates.get(0));
+		}
+
+		final int first = random.nextInt(candidates.size());
+		final int second = (first + 1 + random.nextInt(candidates.size() - 1)) % candidates.size();
+
+		final RadixPeer a = candidates.get(first);
+		final RadixPeer b = candidates.get(second);
+
+		return Optional.of(score(a) <= score(b) ? a : b);
+	}
+
+	private static double score(RadixPeer peer) {
+		RadixJsonRpcClient client = peer.getRadixClient();
+		return client.getHealth().score(client.getInFlightCount());
+	}
+}
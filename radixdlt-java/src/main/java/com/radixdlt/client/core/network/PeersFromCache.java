@@ -0,0 +1,236 @@
+package com.radixdlt.client.core.network;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Peer discovery which remembers peers, their shards and their latency in a local file.
+ * On startup the cached peers are emitted straight away, best first, and the fastest of
+ * them are connected to while the wrapped discovery refreshes the peer list in the background.
+ * Peers discovered again refresh the node runner data of their cached copy.
+ * <p>
+ * The peers are saved periodically until the cache is closed. The node runner data of the
+ * peers found is watched for changes to save for as long as the stream of peers is
+ * subscribed to, so unlike the wrapped discovery it does not complete.
+ */
+public class PeersFromCache implements PeerDiscovery, Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(PeersFromCache.class);
+
+	/**
+	 * Number of cached peers connected to as soon as they are loaded
+	 */
+	private static final int WARM_PEERS = 3;
+	private static final int MAX_CACHED_PEERS = 64;
+	private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+	private static final long SAVE_DELAY_SECONDS = 5;
+	private static final long SAVE_INTERVAL_SECONDS = 60;
+
+	private static class CachedPeer {
+		private String location;
+		private boolean ssl;
+		private int port;
+		private boolean compress;
+		private String ip;
+		private long lowShard;
+		private long highShard;
+		private Double latencyMillis;
+		private long lastSeen;
+	}
+
+	private static class PeerCache {
+		private List<CachedPeer> peers = new ArrayList<>();
+	}
+
+	private final PeerDiscovery discovery;
+	private final File cacheFile;
+	private final Gson gson = new Gson();
+	private final Map<String, RadixPeer> peers = new ConcurrentHashMap<>();
+	private final Set<String> rediscovered = ConcurrentHashMap.newKeySet();
+	private final Map<String, Long> cachedLastSeen = new ConcurrentHashMap<>();
+	private final Map<String, Long> seededSamples = new ConcurrentHashMap<>();
+	private final Subject<RadixPeer> updates = PublishSubject.<RadixPeer>create().toSerialized();
+	private final AtomicBoolean saving = new AtomicBoolean(false);
+	private volatile Disposable saver = Disposables.empty();
+
+	/**
+	 * @param discovery discovery used to refresh the cached peers
+	 * @param cacheFile file the peers are stored in, created if it does not exist
+	 */
+	public PeersFromCache(PeerDiscovery discovery, File cacheFile) {
+		this.discovery = discovery;
+		this.cacheFile = cacheFile;
+	}
+
+	@Override
+	public Observable<RadixPeer> findPeers() {
+		if (saving.compareAndSet(false, true)) {
+			saver = Observable.merge(
+				updates.debounce(SAVE_DELAY_SECONDS, TimeUnit.SECONDS),
+				Observable.interval(SAVE_INTERVAL_SECONDS, SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS)
+			)
+				.observeOn(Schedulers.io())
+				.subscribe(i -> save(), e -> LOGGER.warn("Stopped saving peer cache: {}", e.toString()));
+		}
+
+		return Observable.concat(
+			Observable.fromCallable(this::load)
+				.doOnNext(cached -> cached.stream().limit(WARM_PEERS).forEach(this::warmUp))
+				.flatMapIterable(cached -> cached),
+			discovery.findPeers()
+				.doOnNext(peer -> rediscovered.add(peer.getLocation()))
+		)
+			.filter(this::isNew)
+			.flatMap(peer -> peer.observeData()
+				.doOnNext(data -> updates.onNext(peer))
+				.ignoreElements()
+				.<RadixPeer>toObservable()
+				.startWith(peer));
+	}
+
+	/**
+	 * Keeps the first copy of each peer. Later copies only refresh its node runner data.
+	 */
+	private boolean isNew(RadixPeer peer) {
+		final RadixPeer known = peers.putIfAbsent(peer.getLocation(), peer);
+		if (known == null) {
+			return true;
+		}
+
+		if (known != peer) {
+			peer.awaitData().subscribe(known::data, e -> { });
+		}
+		return false;
+	}
+
+	private static double latencyOf(CachedPeer cached) {
+		return cached.latencyMillis == null ? PeerHealth.DEFAULT_LATENCY_MILLIS : cached.latencyMillis;
+	}
+
+	private void warmUp(RadixPeer peer) {
+		peer.getRadixClient().getSelf().subscribe(
+			data -> LOGGER.info("Connected to cached peer {}", peer),
+			e -> LOGGER.info("Cached peer {} unreachable: {}", peer, e.toString())
+		);
+	}
+
+	/**
+	 * Loads the cached peers, fastest first, seeding their latency so that they are
+	 * preferred until measured again.
+	 *
+	 * @return the cached peers, or an empty list if there is no usable cache
+	 */
+	List<RadixPeer> load() {
+		if (!cacheFile.exists()) {
+			return Collections.emptyList();
+		}
+
+		final PeerCache cache;
+		try (Reader reader = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+			cache = gson.fromJson(reader, PeerCache.class);
+		} catch (IOException | JsonParseException e) {
+			LOGGER.warn("Ignoring unreadable peer cache {}: {}", cacheFile, e.toString());
+			return Collections.emptyList();
+		}
+
+		if (cache == null || cache.peers == null) {
+			return Collections.emptyList();
+		}
+
+		final long now = System.currentTimeMillis();
+		final List<RadixPeer> loaded = cache.peers.stream()
+			.filter(cached -> now - cached.lastSeen < MAX_AGE_MILLIS)
+			.sorted(Comparator.comparingDouble(PeersFromCache::latencyOf))
+			.map(cached -> {
+				cachedLastSeen.put(cached.location, cached.lastSeen);
+				RadixPeer peer = new RadixPeer(cached.location, cached.ssl, cached.port, cached.compress)
+					.data(new NodeRunnerData(cached.ip, cached.lowShard, cached.highShard));
+				if (cached.latencyMillis != null) {
+					peer.getRadixClient().getHealth().recordLatency(Math.round(cached.latencyMillis));
+					seededSamples.put(cached.location, 1L);
+				}
+				return peer;
+			})
+			.collect(Collectors.toList());
+
+		LOGGER.info("Loaded {} cached peers from {}", loaded.size(), cacheFile);
+		return loaded;
+	}
+
+	/**
+	 * Writes the peers found so far, with their shards and latency, to the cache file.
+	 * Peers whose node runner data is not known yet are left out.
+	 */
+	public synchronized void save() {
+		final long now = System.currentTimeMillis();
+		final PeerCache cache = new PeerCache();
+		cache.peers = peers.values().stream()
+			.filter(peer -> peer.getData().isPresent())
+			.map(peer -> {
+				final PeerHealth health = peer.getRadixClient().getHealth();
+				final boolean answered = health.getSampleCount() > seededSamples.getOrDefault(peer.getLocation(), 0L);
+				final CachedPeer cached = new CachedPeer();
+				cached.location = peer.getLocation();
+				cached.ssl = peer.isSsl();
+				cached.port = peer.getPort();
+				cached.compress = peer.isCompressed();
+				cached.ip = peer.getData().get().getIp();
+				cached.lowShard = peer.getData().get().getShards().getLow();
+				cached.highShard = peer.getData().get().getShards().getHigh();
+				cached.latencyMillis = health.getSampleCount() == 0 ? null : health.getLatencyMillis();
+				// Peers which have not been heard of in this session keep their previous age
+				final boolean seen = answered || rediscovered.contains(peer.getLocation());
+				cached.lastSeen = seen ? now : cachedLastSeen.getOrDefault(peer.getLocation(), now);
+				return cached;
+			})
+			.sorted(Comparator.comparingDouble(PeersFromCache::latencyOf))
+			.limit(MAX_CACHED_PEERS)
+			.collect(Collectors.toList());
+
+		final Path target = cacheFile.toPath();
+		final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		try {
+			try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				gson.toJson(cache, writer);
+			}
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to save peer cache {}: {}", cacheFile, e.toString());
+		}
+	}
+
+	/**
+	 * Stops saving the peers periodically and saves them one last time
+	 */
+	@Override
+	public void close() {
+		saver.dispose();
+		save();
+	}
+}
@@ -13,10 +13,21 @@ import okhttp3.ResponseBody;
 public class PeersFromNodeFinder implements PeerDiscovery {
 	private final String nodeFinderUrl;
 	private final int port;
+	private final RetryPolicy retryPolicy;
 
 	public PeersFromNodeFinder(String url, int port) {
+		this(url, port, new ExponentialBackoffRetryPolicy(new ExponentialBackoff(1000, 100_000), 300, Long.MAX_VALUE));
+	}
+
+	/**
+	 * @param url node finder url which responds with the address of a seed node
+	 * @param port port to connect to the seed node on
+	 * @param retryPolicy policy for retrying failed lookups
+	 */
+	public PeersFromNodeFinder(String url, int port, RetryPolicy retryPolicy) {
 		this.nodeFinderUrl = url;
 		this.port = port;
+		this.retryPolicy = retryPolicy;
 	}
 
 	public Observable<RadixPeer> findPeers() {
@@ -53,6 +64,6 @@ public class PeersFromNodeFinder implements PeerDiscovery {
 			.map(peerUrl -> new PeersFromSeed(new RadixPeer(peerUrl, true, port)))
 			.flatMapObservable(PeersFromSeed::findPeers)
 			.timeout(3, TimeUnit.SECONDS)
-			.retryWhen(new IncreasingRetryTimer());
+			.retryWhen(new RetryTimer(retryPolicy));
 	}
 }
@@ -1,5 +1,6 @@
 package com.radixdlt.client.core.network;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -8,14 +9,24 @@ import com.radixdlt.client.core.address.EUID;
 import com.radixdlt.client.core.network.AtomSubmissionUpdate.AtomSubmissionState;
 import com.radixdlt.client.core.network.WebSocketClient.RadixClientStatus;
 import com.radixdlt.client.core.serialization.RadixJson;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
 import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import com.radixdlt.client.core.atoms.Atom;
 
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,24 +38,163 @@ import org.slf4j.LoggerFactory;
 public class RadixJsonRpcClient {
 	private static final Logger LOGGER = LoggerFactory.getLogger(RadixJsonRpcClient.class);
 
+	/**
+	 * Default maximum number of method calls awaiting a response on one connection
+	 */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 128;
+
+	/**
+	 * Backoff for re-issuing atom subscriptions after the connection is lost. Only a couple
+	 * of quick attempts are made on the same connection, after that the error is left to
+	 * the caller to fail over to another peer.
+	 */
+	private static final long RESUBSCRIBE_BASE_DELAY_MILLIS = 500;
+	private static final long RESUBSCRIBE_MAX_DELAY_MILLIS = 2000;
+	private static final int MAX_RESUBSCRIBE_ATTEMPTS = 2;
+
+	/**
+	 * Frames and atom lists are decoded off the websocket thread, at most this many at a
+	 * time per connection, once they are large enough to be worth handing over
+	 */
+	private static final int DECODE_CONCURRENCY = 4;
+	private static final int PARALLEL_DECODE_MIN_FRAME_CHARS = 16 * 1024;
+	private static final int PARALLEL_DECODE_MIN_ATOMS = 4;
+
 	/**
 	 * The websocket this is wrapping
 	 */
 	private final WebSocketClient wsClient;
 
 	/**
-	 * Hot observable of messages received through the websocket
+	 * A JSON-RPC subscription waiting for notifications from the node
 	 */
-	private final Observable<JsonObject> messages;
+	private static class JsonRpcSubscription {
+		private final String notificationMethod;
+		private final ObservableEmitter<JsonObject> emitter;
+
+		private JsonRpcSubscription(String notificationMethod, ObservableEmitter<JsonObject> emitter) {
+			this.notificationMethod = notificationMethod;
+			this.emitter = emitter;
+		}
+	}
+
+	/**
+	 * Hot observable which routes every message received through the websocket to
+	 * the waiting method call or subscription. Emits no items, only the websocket's
+	 * terminal events, so holding a subscription to it keeps the router connected.
+	 */
+	private final Observable<JsonObject> messageRouter;
+
+	/**
+	 * Method calls waiting for a response, keyed by JSON-RPC id
+	 */
+	private final ConcurrentHashMap<String, SingleEmitter<JsonObject>> jsonRpcMethodCalls = new ConcurrentHashMap<>();
+
+	/**
+	 * Subscriptions waiting for notifications, keyed by subscriberId
+	 */
+	private final ConcurrentHashMap<String, JsonRpcSubscription> jsonRpcSubscriptions = new ConcurrentHashMap<>();
+
+	/**
+	 * Coalesces outgoing method calls into batch frames, null if batching is disabled
+	 */
+	private final JsonRpcBatcher batcher;
+
+	/**
+	 * Bounds the number of method calls awaiting a response on this connection
+	 */
+	private final InFlightWindow inFlightWindow;
+
+	/**
+	 * Decodes received frames and atoms in order on worker threads
+	 */
+	private final OrderedDecoder decoder;
+
+	/**
+	 * Round trip times of method calls on this connection
+	 */
+	private final PeerHealth health = new PeerHealth();
+
+	/**
+	 * Atom subscriptions shared between many destinations on this connection
+	 */
+	private final AtomSubscriptionMultiplexer atomMultiplexer = new AtomSubscriptionMultiplexer(this);
 
 	public RadixJsonRpcClient(WebSocketClient wsClient) {
+		this(wsClient, DEFAULT_MAX_IN_FLIGHT, 0, 1);
+	}
+
+	/**
+	 * Creates a client which coalesces method calls issued within a short window into
+	 * JSON-RPC batch requests.
+	 *
+	 * @param wsClient the websocket to wrap
+	 * @param batchWindowMillis how long to wait for further calls before sending a batch
+	 * @param maxBatchSize maximum number of calls in a batch, 1 disables batching
+	 */
+	public RadixJsonRpcClient(WebSocketClient wsClient, long batchWindowMillis, int maxBatchSize) {
+		this(wsClient, DEFAULT_MAX_IN_FLIGHT, batchWindowMillis, maxBatchSize);
+	}
+
+	/**
+	 * Creates a client which allows at most a given number of method calls to await a
+	 * response at any time. Further calls are queued until a response arrives.
+	 *
+	 * @param wsClient the websocket to wrap
+	 * @param maxInFlight maximum number of method calls awaiting a response
+	 * @param batchWindowMillis how long to wait for further calls before sending a batch
+	 * @param maxBatchSize maximum number of calls in a batch, 1 disables batching
+	 */
+	public RadixJsonRpcClient(WebSocketClient wsClient, int maxInFlight, long batchWindowMillis, int maxBatchSize) {
 		this.wsClient = wsClient;
+		this.inFlightWindow = new InFlightWindow(maxInFlight);
+		this.batcher = maxBatchSize > 1
+			? new JsonRpcBatcher(wsClient::send, batchWindowMillis, maxBatchSize, Schedulers.computation())
+			: null;
 
 		final JsonParser parser = new JsonParser();
-		this.messages = this.wsClient.getMessages()
-			.map(msg -> parser.parse(msg).getAsJsonObject())
-			.publish()
-			.refCount();
+		this.decoder = new OrderedDecoder(Schedulers.computation(), DECODE_CONCURRENCY);
+		this.messageRouter = Observable.defer(this.wsClient::getMessages)
+			.compose(decoder.<String, JsonElement>decode(parser::parse, frame -> frame.length() < PARALLEL_DECODE_MIN_FRAME_CHARS))
+			.doOnNext(this::route)
+			// Counted once here rather than by every call the lost connection fails
+			.doOnError(e -> health.recordFailure())
+			.ignoreElements()
+			.<JsonObject>toObservable()
+			.share();
+	}
+
+	/**
+	 * Dispatches a received message, or each message of a batch response, to the
+	 * method call or subscription it belongs to with a single lookup.
+	 *
+	 * @param received json message received from the node
+	 */
+	private void route(JsonElement received) {
+		if (received.isJsonArray()) {
+			for (JsonElement element : received.getAsJsonArray()) {
+				route(element);
+			}
+			return;
+		}
+
+		final JsonObject msg = received.getAsJsonObject();
+		if (msg.has("id")) {
+			SingleEmitter<JsonObject> methodCall = jsonRpcMethodCalls.remove(msg.get("id").getAsString());
+			if (methodCall != null) {
+				methodCall.onSuccess(msg);
+			}
+		} else if (msg.has("method") && msg.has("params")) {
+			JsonObject params = msg.get("params").getAsJsonObject();
+			if (!params.has("subscriberId")) {
+				return;
+			}
+
+			JsonRpcSubscription subscription = jsonRpcSubscriptions.get(params.get("subscriberId").getAsString());
+			if (subscription != null && subscription.notificationMethod.equals(msg.get("method").getAsString())) {
+				subscription.emitter.onNext(params);
+			}
+		}
 	}
 
 	/**
@@ -58,6 +208,41 @@ public class RadixJsonRpcClient {
 		return wsClient.getStatus();
 	}
 
+	/**
+	 * @return the latest status of the underlying websocket
+	 */
+	public RadixClientStatus getCurrentStatus() {
+		return wsClient.getCurrentStatus();
+	}
+
+	/**
+	 * @return health of the node this client is connected to, as seen from this client
+	 */
+	public PeerHealth getHealth() {
+		return health;
+	}
+
+	/**
+	 * @return multiplexer for watching the atoms of many destinations on this connection
+	 */
+	public AtomSubscriptionMultiplexer getAtomMultiplexer() {
+		return atomMultiplexer;
+	}
+
+	/**
+	 * @return number of method calls currently awaiting a response from the node
+	 */
+	public int getInFlightCount() {
+		return inFlightWindow.getInFlight();
+	}
+
+	/**
+	 * @return number of method calls queued until the in-flight window has room
+	 */
+	public int getQueuedCount() {
+		return inFlightWindow.getQueued();
+	}
+
 	/**
 	 * Attempts to close the websocket this client is connected to.
 	 * If there are still observers connected to the websocket closing
@@ -69,6 +254,40 @@ public class RadixJsonRpcClient {
 		return this.wsClient.close();
 	}
 
+	/**
+	 * Sends a JSON-RPC request and waits for the matching response.
+	 *
+	 * @param method name of JSON-RPC method
+	 * @param params parameters of the method call
+	 * @return raw json response
+	 */
+	private Single<JsonObject> sendRequest(String method, JsonObject params) {
+		return Single.create(emitter -> {
+			final String uuid = UUID.randomUUID().toString();
+
+			JsonObject requestObject = new JsonObject();
+			requestObject.addProperty("id", uuid);
+			requestObject.addProperty("method", method);
+			requestObject.add("params", params);
+
+			jsonRpcMethodCalls.put(uuid, emitter);
+			Disposable routerDisposable = messageRouter.subscribe(msg -> { }, emitter::tryOnError);
+			emitter.setCancellable(() -> {
+				jsonRpcMethodCalls.remove(uuid);
+				routerDisposable.dispose();
+			});
+
+			if (batcher != null) {
+				batcher.send(requestObject, emitter::tryOnError);
+			} else {
+				boolean sendSuccess = wsClient.send(RadixJson.getGson().toJson(requestObject));
+				if (!sendSuccess) {
+					emitter.tryOnError(new RuntimeException("Could not connect."));
+				}
+			}
+		});
+	}
+
 	/**
 	 * Generic helper method for calling a JSON-RPC method. Deserializes the received json.
 	 *
@@ -76,40 +295,26 @@ public class RadixJsonRpcClient {
 	 * @return response from rpc method
 	 */
 	private Single<JsonElement> jsonRpcCall(String method, JsonObject params) {
-		return this.wsClient.connect().andThen(
-			Single.<JsonElement>create(emitter -> {
-				final String uuid = UUID.randomUUID().toString();
-
-				JsonObject requestObject = new JsonObject();
-				requestObject.addProperty("id", uuid);
-				requestObject.addProperty("method", method);
-				requestObject.add("params", params);
-
-				messages
-					.filter(msg -> msg.has("id"))
-					.filter(msg -> msg.get("id").getAsString().equals(uuid))
-					.firstOrError()
-					.doOnSubscribe(disposable -> {
-						boolean sendSuccess = wsClient.send(RadixJson.getGson().toJson(requestObject));
-						if (!sendSuccess) {
-							disposable.dispose();
-							emitter.onError(new RuntimeException("Could not connect."));
-						}
-					})
-					.subscribe(msg -> {
-						final JsonObject received = msg.getAsJsonObject();
-						if (received.has("result")) {
-							emitter.onSuccess(received.get("result"));
-						} else if (received.has("error")) {
-							emitter.onError(new RuntimeException(received.toString()));
-						} else {
-							emitter.onError(
-								new RuntimeException("Received bad json rpc message: " + received.toString())
-							);
+		return this.wsClient.connect().andThen(inFlightWindow.submit(
+			Single.defer(() -> {
+				final long start = System.nanoTime();
+				return this.sendRequest(method, params)
+					.doOnSuccess(received -> health.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)))
+					.doOnError(e -> {
+						if (!(e instanceof IOException)) {
+							health.recordFailure();
 						}
 					});
 			})
-		);
+		)).map(received -> {
+			if (received.has("result")) {
+				return received.get("result");
+			} else if (received.has("error")) {
+				throw new RuntimeException(received.toString());
+			} else {
+				throw new RuntimeException("Received bad json rpc message: " + received.toString());
+			}
+		});
 	}
 
 	/**
@@ -160,6 +365,36 @@ public class RadixJsonRpcClient {
 			.flatMapMaybe(list -> list.isEmpty() ? Maybe.empty() : Maybe.just(list.get(0)));
 	}
 
+	/**
+	 * Connects to this Radix Node if not already connected and queries for a set of atoms by HID.
+	 * All queries are issued at once, so with batching enabled they are sent together in
+	 * as few frames as possible. Atoms which this node does not carry are skipped.
+	 *
+	 * @param hids the hash ids of the atoms being queried
+	 * @return the atoms found, in order of arrival
+	 */
+	public Observable<Atom> getAtomsByHid(Collection<EUID> hids) {
+		return Observable.fromIterable(hids).flatMapMaybe(this::getAtom);
+	}
+
+	/**
+	 * Registers a listener for the JSON-RPC notifications sent to a given subscriber id.
+	 *
+	 * @param subscriberId the subscriber id the notifications are addressed to
+	 * @param notificationMethod name of the JSON-RPC notification method
+	 * @return Observable of the params of each notification
+	 */
+	private Observable<JsonObject> jsonRpcNotifications(String subscriberId, String notificationMethod) {
+		return Observable.create(emitter -> {
+			jsonRpcSubscriptions.put(subscriberId, new JsonRpcSubscription(notificationMethod, emitter));
+			Disposable routerDisposable = messageRouter.subscribe(msg -> { }, emitter::tryOnError);
+			emitter.setCancellable(() -> {
+				jsonRpcSubscriptions.remove(subscriberId);
+				routerDisposable.dispose();
+			});
+		});
+	}
+
 	/**
 	 * Generic helper method for creating a subscription via JSON-RPC.
 	 *
@@ -186,11 +421,7 @@ public class RadixJsonRpcClient {
 				final JsonObject params = rawParams.deepCopy();
 				params.addProperty("subscriberId", subscriberId);
 
-				Disposable subscriptionDisposable = messages
-					.filter(msg -> msg.has("method"))
-					.filter(msg -> msg.get("method").getAsString().equals(notificationMethod))
-					.map(msg -> msg.get("params").getAsJsonObject())
-					.filter(p -> p.get("subscriberId").getAsString().equals(subscriberId))
+				Disposable subscriptionDisposable = jsonRpcNotifications(subscriberId, notificationMethod)
 					.subscribe(
 						emitter::onNext,
 						emitter::onError
@@ -219,23 +450,145 @@ public class RadixJsonRpcClient {
 		);
 	}
 
+	/**
+	 * Retrieves all atoms from a node specified by a query as a backpressured stream.
+	 * The node cannot be asked to slow down, so atoms the consumer is not ready for are
+	 * handled as given by the strategy, e.g. buffered, dropped or only the latest kept.
+	 *
+	 * @param atomQuery query specifying which atoms to retrieve
+	 * @param strategy what to do with atoms received before the consumer requests them
+	 * @param <T> atom type
+	 * @return flowable of atoms
+	 */
+	public <T extends Atom> Flowable<T> getAtoms(AtomQuery<T> atomQuery, BackpressureStrategy strategy) {
+		return this.getAtoms(atomQuery).toFlowable(strategy);
+	}
+
 	/**
 	 *  Retrieves all atoms from a node specified by a query. This includes all past
 	 *  and future atoms. The Observable returned will never complete.
+	 *  <p>
+	 *  If the connection is lost the subscription is re-issued a couple of times shortly
+	 *  after, continuing after the last atom received rather than from scratch. The
+	 *  observable errors if the node stays unreachable, so the caller can move on to
+	 *  another node.
 	 *
 	 * @param atomQuery query specifying which atoms to retrieve
 	 * @param <T> atom type
 	 * @return observable of atoms
 	 */
 	public <T extends Atom> Observable<T> getAtoms(AtomQuery<T> atomQuery) {
+		return Observable.defer(() -> {
+			final AtomicReference<AtomQuery<T>> resumeQuery = new AtomicReference<>(atomQuery);
+			final RetryTimer retryTimer = new RetryTimer(new ExponentialBackoffRetryPolicy(
+				new ExponentialBackoff(RESUBSCRIBE_BASE_DELAY_MILLIS, RESUBSCRIBE_MAX_DELAY_MILLIS),
+				MAX_RESUBSCRIBE_ATTEMPTS,
+				Long.MAX_VALUE,
+				IOException.class::isInstance
+			));
+
+			return Observable.defer(() -> this.subscribeAtoms(resumeQuery.get()))
+				.doOnNext(atom -> {
+					retryTimer.reset();
+					resumeQuery.set(atomQuery.after(AtomCursor.after(atom)));
+				})
+				.retryWhen(retryTimer);
+		});
+	}
+
+	/**
+	 * Retrieves the stored history of a query in pages of bounded size, oldest first, and
+	 * completes once the history is exhausted. The next page is requested as soon as the
+	 * previous one arrives, keeping up to a given number of pages ahead of the consumer.
+	 * <p>
+	 * Pass a query with a cursor to continue from a checkpoint, e.g. {@link AtomCursor#after(Atom)}
+	 * of the last atom processed before a restart. If the connection is lost the history is
+	 * resumed after the last atom emitted. Paging also stops if a page does not get past
+	 * the previous one, as happens with nodes which ignore the cursor.
+	 *
+	 * @param atomQuery query specifying which atoms to retrieve, optionally with a cursor
+	 * @param pageSize maximum number of atoms per page
+	 * @param prefetchPages number of pages to fetch ahead of the consumer
+	 * @param <T> atom type
+	 * @return flowable of the atoms in history
+	 */
+	public <T extends Atom> Flowable<T> getAtomHistory(AtomQuery<T> atomQuery, int pageSize, int prefetchPages) {
+		if (pageSize < 1 || prefetchPages < 1) {
+			throw new IllegalArgumentException("Bad paging config: page size " + pageSize + " prefetch " + prefetchPages);
+		}
+
+		return Flowable.defer(() -> {
+			final AtomicReference<AtomQuery<T>> resumeQuery = new AtomicReference<>(atomQuery);
+			final RetryTimer retryTimer = new RetryTimer(new ExponentialBackoffRetryPolicy(
+				new ExponentialBackoff(RESUBSCRIBE_BASE_DELAY_MILLIS, RESUBSCRIBE_MAX_DELAY_MILLIS),
+				MAX_RESUBSCRIBE_ATTEMPTS,
+				Long.MAX_VALUE,
+				IOException.class::isInstance
+			));
+
+			return Flowable.defer(() -> {
+				final AtomicReference<AtomQuery<T>> nextPage = new AtomicReference<>(resumeQuery.get());
+				final AtomicReference<EUID> lastHid = new AtomicReference<>();
+				return Single.defer(() -> this.getAtomPage(nextPage.get().limit(pageSize)))
+					.toFlowable()
+					.repeat()
+					// A node which ignores the cursor would otherwise return the same page forever
+					.takeWhile(page -> {
+						if (page.isEmpty()) {
+							return false;
+						}
+						final Atom last = page.get(page.size() - 1);
+						if (last.getHid().equals(lastHid.getAndSet(last.getHid()))) {
+							LOGGER.warn("Atom history of {} did not advance past {}, stopping",
+								atomQuery.getDestinations(), last.getHid());
+							return false;
+						}
+						nextPage.set(atomQuery.after(AtomCursor.after(last)));
+						return true;
+					})
+					.takeUntil(page -> page.size() < pageSize)
+					.concatMapIterable(page -> page, prefetchPages);
+			})
+				.doOnNext(atom -> {
+					retryTimer.reset();
+					resumeQuery.set(atomQuery.after(AtomCursor.after(atom)));
+				})
+				.retryWhen(errors ->
+					Observable.wrap(retryTimer.apply(errors.toObservable())).toFlowable(BackpressureStrategy.BUFFER)
+				);
+		});
+	}
+
+	private <T extends Atom> Single<List<T>> getAtomPage(AtomQuery<T> atomQuery) {
+		final JsonObject params = new JsonObject();
+		params.add("query", atomQuery.toJson());
+
+		return this.jsonRpcCall("Ledger.getAtoms", params)
+			.flatMap(result -> this.decodeAtoms(result.getAsJsonArray(), atomQuery.getAtomClass()).toList());
+	}
+
+	private <T extends Atom> Observable<T> decodeAtoms(JsonArray jsonAtoms, Class<T> atomClass) {
+		final boolean inline = jsonAtoms.size() < PARALLEL_DECODE_MIN_ATOMS;
+		return Observable.fromIterable(jsonAtoms)
+			.compose(decoder.decode(jsonAtom -> decodeAtom(jsonAtom, atomClass), jsonAtom -> inline));
+	}
+
+	private static <T extends Atom> T decodeAtom(JsonElement jsonAtom, Class<T> atomClass) {
+		T atom = RadixJson.getGson().fromJson(jsonAtom, atomClass);
+		if (!atom.isUnknown()) {
+			// Every received atom gets hashed, so do it while still on a decoding thread
+			atom.getHash();
+		}
+		return atom;
+	}
+
+	private <T extends Atom> Observable<T> subscribeAtoms(AtomQuery<T> atomQuery) {
 		final JsonObject params = new JsonObject();
 		params.add("query", atomQuery.toJson());
 
 		return this.jsonRpcSubscribe("Atoms.subscribe", params, "Atoms.subscribeUpdate")
 			.map(p -> p.getAsJsonObject().get("atoms").getAsJsonArray())
-			.flatMapIterable(array -> array)
-			.map(JsonElement::getAsJsonObject)
-			.map(jsonAtom -> RadixJson.getGson().fromJson(jsonAtom, atomQuery.getAtomClass()))
+			.concatMap(array -> this.decodeAtoms(array, atomQuery.getAtomClass()))
 			.map(atom -> {
 				atom.putDebug("RECEIVED", System.currentTimeMillis());
 				return atom;
@@ -260,11 +613,7 @@ public class RadixJsonRpcClient {
 				params.addProperty("subscriberId", subscriberId);
 				params.add("atom", jsonAtom);
 
-				Disposable subscriptionDisposable = messages
-					.filter(msg -> msg.has("method"))
-					.filter(msg -> msg.get("method").getAsString().equals("AtomSubmissionState.onNext"))
-					.map(msg -> msg.get("params").getAsJsonObject())
-					.filter(p -> p.get("subscriberId").getAsString().equals(subscriberId))
+				Disposable subscriptionDisposable = jsonRpcNotifications(subscriberId, "AtomSubmissionState.onNext")
 					.map(p -> {
 						final AtomSubmissionState state = AtomSubmissionState.valueOf(p.get("value").getAsString());
 						final String message;
@@ -310,4 +659,20 @@ public class RadixJsonRpcClient {
 			})
 		);
 	}
+
+	/**
+	 * Submits a stream of atoms to this node, keeping at most as many submissions
+	 * outstanding as the in-flight window allows. Atoms are only requested from the
+	 * upstream as earlier submissions complete, so a fast producer is slowed down to the
+	 * rate the node accepts atoms instead of failing sends.
+	 *
+	 * @param atoms the atoms to submit
+	 * @return status updates of all submissions
+	 */
+	public Flowable<AtomSubmissionUpdate> submitAtoms(Flowable<? extends Atom> atoms) {
+		return atoms.flatMap(
+			atom -> this.submitAtom(atom).toFlowable(BackpressureStrategy.BUFFER),
+			inFlightWindow.getMaxInFlight()
+		);
+	}
 }
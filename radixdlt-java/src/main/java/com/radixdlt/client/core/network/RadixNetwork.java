@@ -1,13 +1,25 @@
 package com.radixdlt.client.core.network;
 
+import com.radixdlt.client.core.atoms.Shards;
 import com.radixdlt.client.core.network.WebSocketClient.RadixClientStatus;
 import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
 import io.reactivex.observables.ConnectableObservable;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
 
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,6 +29,11 @@ import org.slf4j.LoggerFactory;
 public final class RadixNetwork {
 	private static final Logger LOGGER = LoggerFactory.getLogger(RadixNetwork.class);
 
+	/**
+	 * How often open connections are pinged to measure their latency
+	 */
+	private static final long PROBE_INTERVAL_SECONDS = 15;
+
 	/**
 	 * Cached observable for keeping track of Radix Peers
 	 */
@@ -27,9 +44,79 @@ public final class RadixNetwork {
 	 */
 	private final ConnectableObservable<SimpleImmutableEntry<String, RadixClientStatus>> statusUpdates;
 
+	/**
+	 * Peers discovered so far
+	 */
+	private final List<RadixPeer> knownPeers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Peers with known node runner data by the shards they serve
+	 */
+	private final ShardRangeIndex<RadixPeer> shardIndex = new ShardRangeIndex<>();
+
+	/**
+	 * Subscriptions to the node runner data of the known peers, guarded by itself
+	 */
+	private final Map<RadixPeer, Disposable> indexing = new HashMap<>();
+
+	/**
+	 * Shards each peer is indexed with, guarded by indexing
+	 */
+	private final Map<RadixPeer, Shards> indexedShards = new HashMap<>();
+
+	/**
+	 * Peers as they are added to the shard index
+	 */
+	private final Subject<RadixPeer> indexedPeers = PublishSubject.<RadixPeer>create().toSerialized();
+
+	/**
+	 * Chooses between peers which serve the same shards
+	 */
+	private final PeerSelector peerSelector = new PeerSelector();
+
+	/**
+	 * Periodic latency probes of open connections
+	 */
+	private final Disposable probes;
+
+	/**
+	 * Connects to new peers ahead of use, if enabled
+	 */
+	private final PeerHandshake handshake;
+
+	/**
+	 * Removal of the peers the handshake rejects
+	 */
+	private final Disposable rejections;
+
+	/**
+	 * Creates a network which only connects to peers once they are needed
+	 *
+	 * @param peerDiscovery how to find peers
+	 */
 	public RadixNetwork(PeerDiscovery peerDiscovery) {
+		this(peerDiscovery, null);
+	}
+
+	/**
+	 * Creates a network which connects to some of the peers serving each shard range
+	 * as soon as they are discovered so that the first requests do not wait for a connection.
+	 *
+	 * @param peerDiscovery how to find peers
+	 * @param handshake which peers to connect to ahead of use, or null to connect on demand
+	 */
+	public RadixNetwork(PeerDiscovery peerDiscovery, PeerHandshake handshake) {
+		this.handshake = handshake;
+		this.rejections = handshake == null ? Disposables.disposed() : handshake.getRejectedPeers().subscribe(this::removePeer);
 		this.peers = peerDiscovery.findPeers()
 			.doOnNext(peer -> LOGGER.info("Added to peer list: " + peer.getLocation()))
+			.doOnNext(knownPeers::add)
+			.doOnNext(peer -> {
+				if (handshake != null) {
+					handshake.offer(peer);
+				}
+			})
+			.doOnNext(this::index)
 			.replay().autoConnect(2);
 		this.statusUpdates = peers.map(RadixPeer::getRadixClient)
 			.flatMap(
@@ -39,6 +126,66 @@ public final class RadixNetwork {
 			)
 			.publish();
 		this.statusUpdates.connect();
+
+		// Only probe peers which are already connected so that probing does not open connections
+		this.probes = Observable.interval(PROBE_INTERVAL_SECONDS, PROBE_INTERVAL_SECONDS, TimeUnit.SECONDS)
+			.flatMapIterable(i -> knownPeers)
+			.map(RadixPeer::getRadixClient)
+			.filter(client -> client.getCurrentStatus() == RadixClientStatus.OPEN)
+			.flatMapMaybe(client -> client.getSelf().timeout(PROBE_INTERVAL_SECONDS, TimeUnit.SECONDS).toMaybe().onErrorComplete())
+			.subscribe();
+	}
+
+	/**
+	 * Adds a peer to the shard index once its node runner data is known, and moves it
+	 * whenever its shards change
+	 */
+	private void index(RadixPeer peer) {
+		synchronized (indexing) {
+			indexing.put(peer, Disposables.empty());
+		}
+
+		final Disposable disposable = peer.observeData().map(NodeRunnerData::getShards).distinctUntilChanged().subscribe(shards -> {
+			synchronized (indexing) {
+				if (!indexing.containsKey(peer)) {
+					return;
+				}
+				final Shards previous = indexedShards.put(peer, shards);
+				if (previous != null) {
+					shardIndex.remove(previous, peer);
+				}
+				shardIndex.add(shards, peer);
+			}
+			indexedPeers.onNext(peer);
+		});
+
+		synchronized (indexing) {
+			if (indexing.replace(peer, disposable) == null) {
+				disposable.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Stops using a peer, e.g. one which turned out to serve other shards than it was
+	 * discovered with. It is no longer returned for any shard.
+	 *
+	 * @param peer the peer to drop
+	 */
+	public void removePeer(RadixPeer peer) {
+		synchronized (indexing) {
+			final Disposable disposable = indexing.remove(peer);
+			if (disposable == null) {
+				return;
+			}
+			disposable.dispose();
+			final Shards shards = indexedShards.remove(peer);
+			if (shards != null) {
+				shardIndex.remove(shards, peer);
+			}
+		}
+		knownPeers.remove(peer);
+		LOGGER.info("Removed from peer list: " + peer.getLocation());
 	}
 
 	public Observable<SimpleImmutableEntry<String, RadixClientStatus>> connectAndGetStatusUpdates() {
@@ -59,8 +206,22 @@ public final class RadixNetwork {
 		return peers.map(RadixPeer::getRadixClient);
 	}
 
+	/**
+	 * Returns the clients of the peers serving any of the given shards, first the ones
+	 * already in the shard index and then the ones added to it later on.
+	 *
+	 * @param shards set of shards to find an intersection with
+	 * @return a hot observable of matching Radix clients
+	 */
 	public Observable<RadixJsonRpcClient> getRadixClients(Set<Long> shards) {
-		return peers.flatMapMaybe(peer -> peer.servesShards(shards)).map(RadixPeer::getRadixClient);
+		// Added peers are watched before the index is read so that none are missed in between
+		return Observable.merge(
+			indexedPeers.filter(peer -> peer.getData().get().getShards().intersects(shards)),
+			Observable.defer(() -> Observable.fromIterable(shardIndex.get(shards))),
+			peers.ignoreElements().<RadixPeer>toObservable()
+		)
+			.distinct()
+			.map(RadixPeer::getRadixClient);
 	}
 
 	public Observable<RadixJsonRpcClient> getRadixClients(Long shard) {
@@ -68,30 +229,105 @@ public final class RadixNetwork {
 	}
 
 	/**
-	 * Returns a cold observable of the first peer found which supports
-	 * a set short shards which intersects with a given set of shards.
+	 * Returns the known peers which serve any of the given shards and whose
+	 * connection has not failed and whose circuit breaker is not open.
 	 *
 	 * @param shards set of shards to find an intersection with
-	 * @return a cold observable of the first matching Radix client
+	 * @return peers currently able to serve the shards
+	 */
+	public List<RadixPeer> getAvailablePeers(Set<Long> shards) {
+		return shardIndex.get(shards).stream()
+			.filter(peer -> peer.getRadixClient().getCurrentStatus() != RadixClientStatus.FAILURE)
+			.filter(peer -> peer.getRadixClient().getHealth().isAvailable())
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Picks a peer among the given available ones, preferring those whose last request did not
+	 * fail so that a retry after a failure goes to a different peer if there is one.
+	 */
+	private Optional<RadixPeer> selectPeer(List<RadixPeer> available) {
+		final List<RadixPeer> healthy = available.stream()
+			.filter(peer -> peer.getRadixClient().getHealth().isHealthy())
+			.collect(Collectors.toList());
+		return peerSelector.select(healthy.isEmpty() ? available : healthy);
+	}
+
+	/**
+	 * Picks an available peer serving the given shards. Untrusted peers are only picked if
+	 * no trusted peer is available, rather than leaving the shards without any peer.
+	 */
+	private Optional<RadixPeer> selectPeer(Set<Long> shards) {
+		final Optional<RadixPeer> trusted = selectPeer(getAvailablePeers(shards));
+		if (trusted.isPresent()) {
+			return trusted;
+		}
+
+		final Optional<RadixPeer> untrusted = selectPeer(shardIndex.get(shards).stream()
+			.filter(peer -> peer.getRadixClient().getCurrentStatus() != RadixClientStatus.FAILURE)
+			.filter(peer -> peer.getRadixClient().getHealth().getCircuitBreaker().allowsRequests())
+			.collect(Collectors.toList()));
+		untrusted.ifPresent(peer -> LOGGER.warn("No trusted peer serves shards {}, using untrusted peer {}", shards, peer));
+		return untrusted;
+	}
+
+	/**
+	 * Returns a cold observable of a peer which supports a set short shards which
+	 * intersects with a given set of shards. Picks among the known healthy candidates
+	 * by latency and load, waiting for one to be discovered if there are none yet.
+	 * Peers which served invalid atoms recently are only picked if no other peer is available.
+	 *
+	 * @param shards set of shards to find an intersection with
+	 * @return a cold observable of a matching Radix client
 	 */
 	public Single<RadixJsonRpcClient> getRadixClient(Set<Long> shards) {
+		return Single.defer(() ->
+			selectPeer(shards)
+				.map(peer -> Single.just(peer.getRadixClient()))
+				.orElseGet(() -> awaitRadixClient(shards))
+		);
+	}
+
+	/**
+	 * Picks another available client serving the given shards, e.g. to hedge a request
+	 * already sent to the given client.
+	 *
+	 * @param shards set of shards to find an intersection with
+	 * @param client the client to find an alternative to
+	 * @return a different client serving the shards, if one is known
+	 */
+	public Optional<RadixJsonRpcClient> getAlternativeRadixClient(Set<Long> shards, RadixJsonRpcClient client) {
+		return selectPeer(
+			getAvailablePeers(shards).stream()
+				.filter(peer -> peer.getRadixClient() != client)
+				.collect(Collectors.toList())
+		).map(RadixPeer::getRadixClient);
+	}
+
+	/**
+	 * Waits for a peer serving the given shards to connect
+	 */
+	private Single<RadixJsonRpcClient> awaitRadixClient(Set<Long> shards) {
 		return this.getRadixClients(shards)
-			.flatMapMaybe(client ->
-				client.getStatus()
-					.filter(status -> !status.equals(RadixClientStatus.FAILURE))
-					.map(status -> client)
-					.firstOrError()
-					.toMaybe()
+			.flatMapMaybe(client -> client.getStatus()
+				.filter(status -> !status.equals(RadixClientStatus.FAILURE))
+				.map(status -> client)
+				.firstOrError()
+				.toMaybe()
 			)
-			.firstOrError();
+			.firstOrError()
+			.map(firstFound -> selectPeer(shards)
+				.map(RadixPeer::getRadixClient)
+				.orElse(firstFound)
+			);
 	}
 
 	/**
-	 * Returns a cold observable of the first peer found which supports
-	 * a set short shards which intersects with a given shard
+	 * Returns a cold observable of a peer which supports a set short shards which
+	 * intersects with a given shard
 	 *
 	 * @param shard a shards to find an intersection with
-	 * @return a cold observable of the first matching Radix client
+	 * @return a cold observable of a matching Radix client
 	 */
 	public Single<RadixJsonRpcClient> getRadixClient(Long shard) {
 		return getRadixClient(Collections.singleton(shard));
@@ -101,6 +337,14 @@ public final class RadixNetwork {
 	 * Free resources cleanly to the best of our ability
 	 */
 	public void close() {
+		probes.dispose();
+		rejections.dispose();
+		synchronized (indexing) {
+			indexing.values().forEach(Disposable::dispose);
+		}
+		if (handshake != null) {
+			handshake.close();
+		}
 		// TODO: fix concurrency
 		// TODO: Cleanup objects, etc.
 	}
@@ -1,7 +1,10 @@
 package com.radixdlt.client.core.network;
 
 import io.reactivex.Maybe;
-import io.reactivex.subjects.SingleSubject;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.subjects.BehaviorSubject;
+import java.util.Optional;
 import java.util.Set;
 import okhttp3.Request;
 
@@ -9,31 +12,38 @@ public class RadixPeer {
 
 	private final String location;
 	private final RadixJsonRpcClient radixClient;
-	private final SingleSubject<NodeRunnerData> data;
+	private final BehaviorSubject<NodeRunnerData> data;
 	private final boolean useSSL;
 	private final int port;
+	private final boolean compress;
 
 	public RadixPeer(String location, boolean useSSL, int port) {
-		this.data = SingleSubject.create();
+		this(location, useSSL, port, false);
+	}
+
+	/**
+	 * Creates a peer whose connection optionally sends and receives deflate compressed
+	 * binary frames. Compression is not negotiated with the node, so it must only be
+	 * enabled for nodes known to support it, otherwise the node cannot read any request.
+	 *
+	 * @param location host name of the node
+	 * @param useSSL whether to connect over TLS
+	 * @param port port the node listens on
+	 * @param compress whether to compress messages, see {@link WebSocketClient}
+	 */
+	public RadixPeer(String location, boolean useSSL, int port, boolean compress) {
+		this.data = BehaviorSubject.create();
 		this.location = location;
 		this.useSSL = useSSL;
 		this.port = port;
-
-		if (useSSL) {
-			this.radixClient = new RadixJsonRpcClient(
-				new WebSocketClient(
-					HttpClients::getSslAllTrustingClient,
-					new Request.Builder().url("wss://" + location + ":" + port + "/rpc").build()
-				)
-			);
-		} else {
-			this.radixClient = new RadixJsonRpcClient(
-				new WebSocketClient(
-					HttpClients::getSslAllTrustingClient,
-					new Request.Builder().url("ws://" + location + ":" + port + "/rpc").build()
-				)
-			);
-		}
+		this.compress = compress;
+		this.radixClient = new RadixJsonRpcClient(
+			new WebSocketClient(
+				HttpClients::getSslAllTrustingClient,
+				new Request.Builder().url((useSSL ? "wss://" : "ws://") + location + ":" + port + "/rpc").build(),
+				compress
+			)
+		);
 	}
 
 	public int getPort() {
@@ -44,6 +54,10 @@ public class RadixPeer {
 		return useSSL;
 	}
 
+	public boolean isCompressed() {
+		return compress;
+	}
+
 	public String getLocation() {
 		return location;
 	}
@@ -52,13 +66,41 @@ public class RadixPeer {
 		return radixClient;
 	}
 
+	/**
+	 * @return the node runner data of this peer if it has been received yet
+	 */
+	public Optional<NodeRunnerData> getData() {
+		return Optional.ofNullable(data.getValue());
+	}
+
+	/**
+	 * @return the node runner data of this peer once it has been received
+	 */
+	public Single<NodeRunnerData> awaitData() {
+		return data.firstOrError();
+	}
+
+	/**
+	 * @return the node runner data of this peer once it has been received and again
+	 * whenever it changes
+	 */
+	public Observable<NodeRunnerData> observeData() {
+		return data.distinctUntilChanged();
+	}
+
+	/**
+	 * Sets or refreshes the node runner data of this peer
+	 *
+	 * @param data the latest node runner data
+	 * @return this peer
+	 */
 	public RadixPeer data(NodeRunnerData data) {
-		this.data.onSuccess(data);
+		this.data.onNext(data);
 		return this;
 	}
 
 	public Maybe<RadixPeer> servesShards(Set<Long> shards) {
-		return data.map(d -> d.getShards().intersects(shards)).flatMapMaybe(intersects -> intersects ? Maybe.just(this) : Maybe.empty());
+		return awaitData().filter(d -> d.getShards().intersects(shards)).map(d -> this);
 	}
 
 	@Override
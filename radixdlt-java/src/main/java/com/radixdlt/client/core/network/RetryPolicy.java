@@ -0,0 +1,15 @@
+package com.radixdlt.client.core.network;
+
+/**
+ * Decides whether and when a failed operation should be retried.
+ * Used through {@link RetryTimer} with {@link io.reactivex.Observable#retryWhen}.
+ */
+public interface RetryPolicy {
+	/**
+	 * @param attempt number of the retry about to be made, starting at 1
+	 * @param elapsedMillis time since the operation was first attempted
+	 * @param error the error which caused the operation to fail
+	 * @return delay in milliseconds before retrying, or a negative value to give up
+	 */
+	long getRetryDelayMillis(int attempt, long elapsedMillis, Throwable error);
+}
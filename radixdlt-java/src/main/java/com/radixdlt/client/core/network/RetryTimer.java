@@ -0,0 +1,52 @@
+package com.radixdlt.client.core.network;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.Function;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retry handler for {@link Observable#retryWhen} which delays or gives up on
+ * retries as decided by a {@link RetryPolicy}. Attempts are counted from the
+ * subscription, so an instance must not be shared between concurrent subscriptions.
+ */
+public class RetryTimer implements Function<Observable<Throwable>, ObservableSource<Long>> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RetryTimer.class);
+
+	private final RetryPolicy policy;
+	private final AtomicInteger attempts = new AtomicInteger(0);
+	private final AtomicLong startMillis = new AtomicLong(0);
+
+	public RetryTimer(RetryPolicy policy) {
+		this.policy = policy;
+	}
+
+	/**
+	 * Starts counting attempts and elapsed time from scratch, e.g. once the retried
+	 * source has successfully produced a value again.
+	 */
+	public void reset() {
+		attempts.set(0);
+		startMillis.set(System.currentTimeMillis());
+	}
+
+	@Override
+	public ObservableSource<Long> apply(Observable<Throwable> errors) {
+		reset();
+
+		return errors.flatMap(error -> {
+			final int attempt = attempts.incrementAndGet();
+			final long delay = policy.getRetryDelayMillis(attempt, System.currentTimeMillis() - startMillis.get(), error);
+			if (delay < 0) {
+				return Observable.error(error);
+			}
+
+			LOGGER.info("Connection lost. Retrying in {} ms (attempt {})", delay, attempt);
+			return Observable.timer(delay, TimeUnit.MILLISECONDS);
+		});
+	}
+}
@@ -0,0 +1,134 @@
+package com.radixdlt.client.core.network;
+
+import com.radixdlt.client.core.atoms.Shards;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index from shard to the items (e.g. peers) whose shard range contains it.
+ * <p>
+ * Shard ranges are cut into elementary segments at every range boundary, each
+ * mapping to the items covering the whole segment. Looking up a shard is a single
+ * floor search, so it takes logarithmic time in the number of distinct boundaries
+ * no matter how many items are indexed. Sets are copy on write and shared between
+ * segments so lookups can return them without copying.
+ *
+ * @param <T> type of the indexed items
+ */
+public class ShardRangeIndex<T> {
+	private final TreeMap<Long, Set<T>> segments = new TreeMap<>();
+
+	/**
+	 * Adds an item serving a range of shards to the index
+	 *
+	 * @param shards the range of shards served
+	 * @param item the item serving them
+	 */
+	public synchronized void add(Shards shards, T item) {
+		split(shards.getLow());
+		if (shards.getHigh() != Long.MAX_VALUE) {
+			split(shards.getHigh() + 1);
+		}
+
+		// Segments which shared a set before keep sharing the updated one
+		final Map<Set<T>, Set<T>> updated = new IdentityHashMap<>();
+		for (Entry<Long, Set<T>> segment : segments.subMap(shards.getLow(), true, shards.getHigh(), true).entrySet()) {
+			segment.setValue(updated.computeIfAbsent(segment.getValue(), current -> {
+				Set<T> next = new LinkedHashSet<>(current);
+				next.add(item);
+				return Collections.unmodifiableSet(next);
+			}));
+		}
+	}
+
+	/**
+	 * Removes an item from the index
+	 *
+	 * @param shards the range of shards the item was added with
+	 * @param item the item to remove
+	 */
+	public synchronized void remove(Shards shards, T item) {
+		final Map<Set<T>, Set<T>> updated = new IdentityHashMap<>();
+		for (Entry<Long, Set<T>> segment : segments.subMap(shards.getLow(), true, shards.getHigh(), true).entrySet()) {
+			segment.setValue(updated.computeIfAbsent(segment.getValue(), current -> {
+				if (!current.contains(item)) {
+					return current;
+				}
+				Set<T> next = new LinkedHashSet<>(current);
+				next.remove(item);
+				return next.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(next);
+			}));
+		}
+
+		join(shards.getLow());
+		if (shards.getHigh() != Long.MAX_VALUE) {
+			join(shards.getHigh() + 1);
+		}
+	}
+
+	private void split(long at) {
+		if (segments.containsKey(at)) {
+			return;
+		}
+
+		Entry<Long, Set<T>> floor = segments.floorEntry(at);
+		segments.put(at, floor == null ? Collections.emptySet() : floor.getValue());
+	}
+
+	/**
+	 * Drops the boundary at a shard if the segments on either side hold the same items
+	 */
+	private void join(long at) {
+		final Set<T> current = segments.get(at);
+		if (current == null) {
+			return;
+		}
+
+		final Entry<Long, Set<T>> lower = segments.lowerEntry(at);
+		if ((lower == null ? Collections.<T>emptySet() : lower.getValue()).equals(current)) {
+			segments.remove(at);
+		}
+	}
+
+	/**
+	 * @param shard the shard to look up
+	 * @return the items whose range contains the shard
+	 */
+	public synchronized Set<T> get(long shard) {
+		Entry<Long, Set<T>> segment = segments.floorEntry(shard);
+		return segment == null ? Collections.emptySet() : segment.getValue();
+	}
+
+	/**
+	 * @param shards the range of shards to look up
+	 * @return the smallest number of items containing any one shard of the range
+	 */
+	public synchronized int minCount(Shards shards) {
+		final Entry<Long, Set<T>> first = segments.floorEntry(shards.getLow());
+		int min = first == null ? 0 : first.getValue().size();
+		for (Set<T> segment : segments.subMap(shards.getLow(), false, shards.getHigh(), true).values()) {
+			min = Math.min(min, segment.size());
+		}
+		return min;
+	}
+
+	/**
+	 * @param shards the shards to look up
+	 * @return the items whose range contains any of the shards
+	 */
+	public Set<T> get(Collection<Long> shards) {
+		if (shards.size() == 1) {
+			return get(shards.iterator().next());
+		}
+
+		Set<T> result = new LinkedHashSet<>();
+		shards.forEach(shard -> result.addAll(get(shard)));
+		return result;
+	}
+}
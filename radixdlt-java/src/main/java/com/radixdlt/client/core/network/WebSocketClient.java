@@ -7,12 +7,15 @@ import io.reactivex.subjects.PublishSubject;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
+import okio.ByteString;
+import okio.Utf8;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,19 +35,64 @@ public class WebSocketClient {
 
 	private PublishSubject<String> messages = PublishSubject.create();
 
+	/**
+	 * Delay after a failure before the client may connect again
+	 */
+	private final ExponentialBackoff reconnectBackoff = new ExponentialBackoff(1000, 60000);
+	private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+
+	/**
+	 * Compresses outgoing and decompresses incoming binary frames, null if messages
+	 * are exchanged uncompressed
+	 */
+	private final DeflateFrameCodec codec;
+
+	private final WebSocketMetrics metrics = new WebSocketMetrics();
+
 	public WebSocketClient(Supplier<OkHttpClient> okHttpClient, Request endpoint) {
+		this(okHttpClient, endpoint, false);
+	}
+
+	/**
+	 * Creates a websocket client which optionally exchanges messages as deflate compressed
+	 * binary frames, using the payload format of permessage-deflate (RFC 7692).
+	 * <p>
+	 * Compression is not negotiated: the permessage-deflate extension is not offered in
+	 * the websocket handshake, so only enable it for nodes known to accept compressed
+	 * binary frames. Messages a node sends as text frames are still received as they are.
+	 * Without compression, binary frames received are dropped.
+	 *
+	 * @param okHttpClient supplier of the http client to open the websocket with
+	 * @param endpoint the websocket endpoint
+	 * @param compress whether to send and receive compressed binary frames
+	 */
+	public WebSocketClient(Supplier<OkHttpClient> okHttpClient, Request endpoint, boolean compress) {
 		this.okHttpClient = okHttpClient;
 		this.endpoint = endpoint;
+		this.codec = compress ? new DeflateFrameCodec() : null;
+
+		this.status
+			.filter(status -> status.equals(RadixClientStatus.OPEN))
+			.subscribe(i -> this.consecutiveFailures.set(0));
 
 		this.status
 			.filter(status -> status.equals(RadixClientStatus.FAILURE))
-			.debounce(1, TimeUnit.MINUTES)
+			.switchMap(i -> Observable.timer(
+				reconnectBackoff.getDelayMillis(consecutiveFailures.incrementAndGet()),
+				TimeUnit.MILLISECONDS
+			))
 			.subscribe(i -> {
 				this.messages = PublishSubject.create();
 				this.status.onNext(RadixClientStatus.CLOSED);
 			});
 	}
 
+	/**
+	 * Returns the messages received on the current connection. After a failure the
+	 * stream errors and a new one is used once the client may connect again.
+	 *
+	 * @return hot observable of messages received on the current connection
+	 */
 	public Observable<String> getMessages() {
 		return messages;
 	}
@@ -57,6 +105,17 @@ public class WebSocketClient {
 		return status;
 	}
 
+	public RadixClientStatus getCurrentStatus() {
+		return status.getValue();
+	}
+
+	/**
+	 * @return byte counts of messages sent and received, before and after compression
+	 */
+	public WebSocketMetrics getMetrics() {
+		return metrics;
+	}
+
 	public boolean close() {
 		if (messages.hasObservers()) {
 			return false;
@@ -86,6 +145,27 @@ public class WebSocketClient {
 
 			@Override
 			public void onMessage(WebSocket webSocket, String message) {
+				final long size = Utf8.size(message);
+				metrics.received(size, size);
+				messages.onNext(message);
+			}
+
+			@Override
+			public void onMessage(WebSocket webSocket, ByteString bytes) {
+				if (codec == null) {
+					LOGGER.warn("Dropping binary frame from {}, compression is not enabled", endpoint.url());
+					return;
+				}
+
+				final String message;
+				try {
+					message = codec.decode(bytes);
+				} catch (IOException e) {
+					LOGGER.error("Unable to decompress frame: " + e.getMessage());
+					return;
+				}
+
+				metrics.received(Utf8.size(message), bytes.size());
 				messages.onNext(message);
 			}
 
@@ -134,6 +214,20 @@ public class WebSocketClient {
 	}
 
 	public boolean send(String message) {
-		return this.webSocket.send(message);
+		final long size = Utf8.size(message);
+		if (codec == null) {
+			if (!this.webSocket.send(message)) {
+				return false;
+			}
+			metrics.sent(size, size);
+			return true;
+		}
+
+		final ByteString frame = codec.encode(message);
+		if (!this.webSocket.send(frame)) {
+			return false;
+		}
+		metrics.sent(size, frame.size());
+		return true;
 	}
 }
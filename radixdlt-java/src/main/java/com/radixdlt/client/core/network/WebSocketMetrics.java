@@ -0,0 +1,58 @@
+package com.radixdlt.client.core.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte counts of the messages passing through a websocket, both as seen by the
+ * application and as sent over the wire, to measure the effect of compression.
+ */
+public class WebSocketMetrics {
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong wireBytesSent = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final AtomicLong wireBytesReceived = new AtomicLong();
+
+	void sent(long bytes, long wireBytes) {
+		bytesSent.addAndGet(bytes);
+		wireBytesSent.addAndGet(wireBytes);
+	}
+
+	void received(long bytes, long wireBytes) {
+		bytesReceived.addAndGet(bytes);
+		wireBytesReceived.addAndGet(wireBytes);
+	}
+
+	/**
+	 * @return size of all messages sent, before compression
+	 */
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	/**
+	 * @return size of all message payloads sent, after compression
+	 */
+	public long getWireBytesSent() {
+		return wireBytesSent.get();
+	}
+
+	/**
+	 * @return size of all messages received, after decompression
+	 */
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	/**
+	 * @return size of all message payloads received, before decompression
+	 */
+	public long getWireBytesReceived() {
+		return wireBytesReceived.get();
+	}
+
+	@Override
+	public String toString() {
+		return "sent " + getBytesSent() + "B (" + getWireBytesSent() + "B on wire) received "
+			+ getBytesReceived() + "B (" + getWireBytesReceived() + "B on wire)";
+	}
+}
@@ -0,0 +1,33 @@
+package com.radixdlt.client.core.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Map which keeps at most a given number of entries, dropping the least recently
+ * accessed entry when another one is added. Not thread safe.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LruMap<K, V> extends LinkedHashMap<K, V> {
+	private static final long serialVersionUID = 1L;
+
+	private final int maxSize;
+
+	/**
+	 * @param maxSize maximum number of entries kept
+	 */
+	public LruMap(int maxSize) {
+		super(16, 0.75f, true);
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Max size must be positive: " + maxSize);
+		}
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+		return size() > maxSize;
+	}
+}
@@ -2,13 +2,16 @@ package com.radixdlt.client.application;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.radixdlt.client.application.RadixApplicationAPI.Result;
+import com.radixdlt.client.application.actions.TokenTransfer;
 import com.radixdlt.client.application.objects.Data;
 import com.radixdlt.client.application.objects.UnencryptedData;
 import com.radixdlt.client.application.translate.InsufficientFundsException;
@@ -19,18 +22,25 @@ import com.radixdlt.client.core.address.RadixAddress;
 import com.radixdlt.client.core.atoms.ApplicationPayloadAtom;
 import com.radixdlt.client.core.atoms.Atom;
 import com.radixdlt.client.core.atoms.AtomBuilder;
+import com.radixdlt.client.core.atoms.Consumable;
 import com.radixdlt.client.core.atoms.Payload;
+import com.radixdlt.client.core.atoms.TransactionAtom;
 import com.radixdlt.client.core.atoms.UnsignedAtom;
 import com.radixdlt.client.core.crypto.CryptoException;
+import com.radixdlt.client.core.crypto.ECKeyPair;
+import com.radixdlt.client.core.crypto.ECPublicKey;
 import com.radixdlt.client.core.crypto.EncryptedPrivateKey;
 import com.radixdlt.client.core.crypto.Encryptor;
 import com.radixdlt.client.application.identity.RadixIdentity;
+import com.radixdlt.client.core.ledger.AtomQueryUpdate;
 import com.radixdlt.client.core.ledger.RadixLedger;
 import com.radixdlt.client.core.network.AtomSubmissionUpdate;
 import com.radixdlt.client.core.network.AtomSubmissionUpdate.AtomSubmissionState;
+import io.reactivex.BackpressureStrategy;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.observers.TestObserver;
+import io.reactivex.subscribers.TestSubscriber;
 import java.util.Collections;
 import java.util.function.Supplier;
 import org.junit.Test;
@@ -202,7 +212,7 @@ public class RadixApplicationAPITest {
 		when(universe.getLedger()).thenReturn(ledger);
 		RadixApplicationAPI api = RadixApplicationAPI.create(identity, universe, AtomBuilder::new);
 
-		when(ledger.getAllAtoms(any(), any())).thenReturn(Observable.empty());
+		when(ledger.getAtomUpdates(any(), any())).thenReturn(Observable.just(AtomQueryUpdate.historyEnd()));
 
 		TestObserver<Amount> observer = TestObserver.create();
 
@@ -219,10 +229,43 @@ public class RadixApplicationAPITest {
 		when(universe.getLedger()).thenReturn(ledger);
 		RadixApplicationAPI api = RadixApplicationAPI.create(identity, universe, AtomBuilder::new);
 
-		when(ledger.getAllAtoms(any(), any())).thenReturn(Observable.empty());
+		when(ledger.getAtomUpdates(any(), any())).thenReturn(Observable.just(AtomQueryUpdate.historyEnd()));
 
 		TestObserver observer = TestObserver.create();
 		api.transferTokens(address, address, Amount.subUnitsOf(10, Asset.TEST)).toCompletable().subscribe(observer);
 		observer.assertError(new InsufficientFundsException(Asset.TEST, 0, 10));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testSlowTokenTransferSubscriberKeepsLatest() {
+		RadixUniverse universe = mock(RadixUniverse.class);
+		RadixLedger ledger = mock(RadixLedger.class);
+		RadixAddress address = mock(RadixAddress.class);
+		RadixIdentity identity = mock(RadixIdentity.class);
+		when(universe.getLedger()).thenReturn(ledger);
+		when(address.ownsKey(any(ECKeyPair.class))).thenReturn(true);
+		when(address.ownsKey(any(ECPublicKey.class))).thenReturn(true);
+		RadixApplicationAPI api = RadixApplicationAPI.create(identity, universe, AtomBuilder::new);
+
+		ECKeyPair keyPair = new ECKeyPair(new ECPublicKey(new byte[33]));
+		TransactionAtom[] atoms = new TransactionAtom[3];
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[i] = new AtomBuilder()
+				.type(TransactionAtom.class)
+				.addParticle(new Consumable(10 * (i + 1), keyPair, i, Asset.TEST.getId()))
+				.build()
+				.getRawAtom()
+				.getAsTransactionAtom();
+		}
+		when(ledger.getAllAtoms(any(), eq(TransactionAtom.class))).thenReturn(Observable.fromArray(atoms).concatWith(Observable.never()));
+
+		TestSubscriber<TokenTransfer> subscriber = api.getTokenTransfers(address, Asset.TEST, BackpressureStrategy.LATEST).test(1);
+		subscriber.request(1);
+
+		// Only the transfers are dropped, every atom reaches the transaction state
+		subscriber.assertValueCount(2);
+		subscriber.assertValueAt(0, transfer -> transfer.getSubUnitAmount() == 10);
+		subscriber.assertValueAt(1, transfer -> transfer.getSubUnitAmount() == 30);
+		verify(ledger, never()).getAllAtoms(any(), any(), any());
+	}
+}
@@ -0,0 +1,116 @@
+package com.radixdlt.client.application.translate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.client.assets.Asset;
+import com.radixdlt.client.core.atoms.Consumable;
+import com.radixdlt.client.core.crypto.ECKeyPair;
+import com.radixdlt.client.core.crypto.ECPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.Test;
+
+public class CoinSelectorTest {
+	private final ECKeyPair keyPair = new ECKeyPair(new ECPublicKey(new byte[33]));
+
+	private List<Consumable> consumables(long... quantities) {
+		List<Consumable> consumables = new ArrayList<>();
+		for (int i = 0; i < quantities.length; i++) {
+			consumables.add(new Consumable(quantities[i], keyPair, i, Asset.TEST.getId()));
+		}
+		return consumables;
+	}
+
+	/**
+	 * Wallet which received many small payments and a few large ones, with quantities
+	 * spread over several orders of magnitude
+	 */
+	private List<Consumable> wallet(Random random, int size) {
+		long[] quantities = new long[size];
+		for (int i = 0; i < size; i++) {
+			quantities[i] = Math.max(1, Math.round(Math.exp(random.nextGaussian() * 2 + 7)));
+		}
+		return consumables(quantities);
+	}
+
+	private static long sum(List<Consumable> consumables) {
+		return consumables.stream().mapToLong(Consumable::getQuantity).sum();
+	}
+
+	@Test
+	public void testInsufficientFunds() {
+		List<Consumable> available = consumables(1, 2, 3);
+		assertThat(new LargestFirstCoinSelector().select(available, 7)).isEmpty();
+		assertThat(new BranchAndBoundCoinSelector().select(available, 7)).isEmpty();
+		assertThat(new RandomImproveCoinSelector().select(available, 7)).isEmpty();
+	}
+
+	@Test
+	public void testLargestFirstUsesFewestInputs() {
+		Optional<List<Consumable>> selected = new LargestFirstCoinSelector().select(consumables(1, 1, 1, 50, 5), 52);
+		assertThat(selected.get()).extracting(Consumable::getQuantity).containsExactly(50L, 5L);
+	}
+
+	@Test
+	public void testBranchAndBoundFindsExactMatch() {
+		Optional<List<Consumable>> selected = new BranchAndBoundCoinSelector().select(consumables(1, 40, 3, 50, 12, 10), 52);
+		assertThat(selected.get()).extracting(Consumable::getQuantity).containsExactlyInAnyOrder(40L, 12L);
+	}
+
+	@Test
+	public void testBranchAndBoundFallsBackWithoutExactMatch() {
+		Optional<List<Consumable>> selected = new BranchAndBoundCoinSelector().select(consumables(20, 30, 40), 45);
+		assertThat(sum(selected.get())).isGreaterThanOrEqualTo(45);
+		assertThat(selected.get()).hasSize(2);
+	}
+
+	@Test
+	public void testRandomImproveAddsBoundedExtraInputs() {
+		long[] quantities = new long[100];
+		Arrays.fill(quantities, 100);
+		List<Consumable> available = consumables(quantities);
+
+		Random random = new Random(1);
+		for (int i = 0; i < 20; i++) {
+			// Ten inputs reach the amount, two more bring the change closer to the amount
+			List<Consumable> selected = new RandomImproveCoinSelector(random, 2).select(available, 1_000).get();
+			assertThat(selected).hasSize(12).doesNotHaveDuplicates();
+			assertThat(sum(selected)).isEqualTo(1_200);
+		}
+	}
+
+	@Test
+	public void testFewerInputsThanIterationOrderOnRealisticWallets() {
+		Random random = new Random(42);
+		List<CoinSelector> selectors = Arrays.asList(new LargestFirstCoinSelector(), new BranchAndBoundCoinSelector());
+		long[] inputs = new long[selectors.size()];
+		long iterationOrderInputs = 0;
+
+		for (int i = 0; i < 50; i++) {
+			List<Consumable> available = wallet(random, 500);
+			long amount = sum(available) / (2 + random.nextInt(20));
+
+			long total = 0;
+			for (Consumable consumable : available) {
+				if (total >= amount) {
+					break;
+				}
+				total += consumable.getQuantity();
+				iterationOrderInputs++;
+			}
+
+			for (int s = 0; s < selectors.size(); s++) {
+				List<Consumable> selected = selectors.get(s).select(available, amount).get();
+				assertThat(sum(selected)).isGreaterThanOrEqualTo(amount);
+				inputs[s] += selected.size();
+			}
+		}
+
+		for (long selectorInputs : inputs) {
+			assertThat(selectorInputs).isLessThan(iterationOrderInputs / 2);
+		}
+	}
+}
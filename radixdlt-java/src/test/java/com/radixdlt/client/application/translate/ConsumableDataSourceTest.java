@@ -0,0 +1,155 @@
+package com.radixdlt.client.application.translate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.radixdlt.client.assets.Asset;
+import com.radixdlt.client.core.address.EUID;
+import com.radixdlt.client.core.address.RadixAddress;
+import com.radixdlt.client.core.atoms.AtomBuilder;
+import com.radixdlt.client.core.atoms.Consumable;
+import com.radixdlt.client.core.atoms.TransactionAtom;
+import com.radixdlt.client.core.crypto.ECKeyPair;
+import com.radixdlt.client.core.crypto.ECPublicKey;
+import com.radixdlt.client.core.ledger.AtomQueryUpdate;
+import com.radixdlt.client.core.ledger.RadixLedger;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.PublishSubject;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConsumableDataSourceTest {
+	private final TestScheduler scheduler = new TestScheduler();
+	private final ECKeyPair keyPair = new ECKeyPair(new ECPublicKey(new byte[33]));
+
+	@Before
+	public void setUp() {
+		RxJavaPlugins.setComputationSchedulerHandler(s -> scheduler);
+	}
+
+	@After
+	public void tearDown() {
+		RxJavaPlugins.reset();
+	}
+
+	private AtomQueryUpdate<TransactionAtom> received(long quantity, long nonce) {
+		return AtomQueryUpdate.of(new AtomBuilder()
+			.type(TransactionAtom.class)
+			.addParticle(new Consumable(quantity, keyPair, nonce, Asset.TEST.getId()))
+			.build()
+			.getRawAtom()
+			.getAsTransactionAtom());
+	}
+
+	@Test
+	public void testChangesEmittedImmediatelyOnceCaughtUp() {
+		RadixAddress address = mock(RadixAddress.class);
+		when(address.getUID()).thenReturn(new EUID(BigInteger.ONE));
+		when(address.ownsKey(any(ECKeyPair.class))).thenReturn(true);
+		when(address.ownsKey(any(ECPublicKey.class))).thenReturn(true);
+
+		PublishSubject<AtomQueryUpdate<TransactionAtom>> atoms = PublishSubject.create();
+		RadixLedger ledger = mock(RadixLedger.class);
+		when(ledger.getAtomUpdates(any(), eq(TransactionAtom.class))).thenReturn(atoms);
+
+		ConsumableDataSource dataSource = new ConsumableDataSource(ledger);
+		TestObserver<Map<EUID, Long>> observer = dataSource.getBalances(address).test();
+
+		atoms.onNext(received(10, 1));
+		atoms.onNext(received(20, 2));
+		observer.assertNoValues();
+
+		atoms.onNext(AtomQueryUpdate.historyEnd());
+		observer.assertValueCount(1);
+		observer.assertValueAt(0, balances -> balances.get(Asset.TEST.getId()) == 30L);
+
+		atoms.onNext(received(5, 3));
+		observer.assertValueCount(2);
+		observer.assertValueAt(1, balances -> balances.get(Asset.TEST.getId()) == 35L);
+
+		// Late subscribers get the current snapshot straight away
+		dataSource.getConsumables(address).test().assertValue(consumables -> consumables.size() == 3);
+	}
+
+	@Test
+	public void testCatchUpWaitsForEndOfHistory() {
+		RadixAddress address = mock(RadixAddress.class);
+		when(address.getUID()).thenReturn(new EUID(BigInteger.ONE));
+		when(address.ownsKey(any(ECKeyPair.class))).thenReturn(true);
+		when(address.ownsKey(any(ECPublicKey.class))).thenReturn(true);
+
+		PublishSubject<AtomQueryUpdate<TransactionAtom>> atoms = PublishSubject.create();
+		RadixLedger ledger = mock(RadixLedger.class);
+		when(ledger.getAtomUpdates(any(), eq(TransactionAtom.class))).thenReturn(atoms);
+
+		TestObserver<Map<EUID, Long>> observer = new ConsumableDataSource(ledger).getBalances(address).test();
+		for (int i = 0; i < 60; i++) {
+			atoms.onNext(received(1, i));
+			scheduler.advanceTimeBy(900, TimeUnit.MILLISECONDS);
+		}
+		observer.assertNoValues();
+
+		atoms.onNext(AtomQueryUpdate.historyEnd());
+		observer.assertValueCount(1);
+		observer.assertValueAt(0, balances -> balances.get(Asset.TEST.getId()) == 60L);
+	}
+
+	@Test
+	public void testCaughtUpAfterQuietPeriodWithoutEndOfHistory() {
+		RadixAddress address = mock(RadixAddress.class);
+		when(address.getUID()).thenReturn(new EUID(BigInteger.ONE));
+		when(address.ownsKey(any(ECKeyPair.class))).thenReturn(true);
+		when(address.ownsKey(any(ECPublicKey.class))).thenReturn(true);
+
+		PublishSubject<AtomQueryUpdate<TransactionAtom>> atoms = PublishSubject.create();
+		RadixLedger ledger = mock(RadixLedger.class);
+		when(ledger.getAtomUpdates(any(), eq(TransactionAtom.class))).thenReturn(atoms);
+
+		TestObserver<Map<EUID, Long>> observer = new ConsumableDataSource(ledger).getBalances(address).test();
+		atoms.onNext(received(10, 1));
+		scheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+		observer.assertNoValues();
+
+		scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+		observer.assertValueCount(1);
+		observer.assertValueAt(0, balances -> balances.get(Asset.TEST.getId()) == 10L);
+	}
+
+	@Test
+	public void testIdleAddressDisconnectedAndEvicted() {
+		RadixAddress address = mock(RadixAddress.class);
+		when(address.getUID()).thenReturn(new EUID(BigInteger.ONE));
+
+		PublishSubject<AtomQueryUpdate<TransactionAtom>> atoms = PublishSubject.create();
+		RadixLedger ledger = mock(RadixLedger.class);
+		when(ledger.getAtomUpdates(any(), eq(TransactionAtom.class))).thenReturn(atoms);
+
+		ConsumableDataSource dataSource = new ConsumableDataSource(ledger);
+		TestObserver<Map<EUID, Long>> observer = dataSource.getBalances(address).test();
+		assertThat(atoms.hasObservers()).isTrue();
+		observer.dispose();
+
+		// Kept for a while in case the address is looked up again soon
+		scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+		assertThat(atoms.hasObservers()).isTrue();
+		dataSource.getBalances(address).test().dispose();
+		verify(ledger, times(1)).getAtomUpdates(any(), any());
+
+		scheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+		assertThat(atoms.hasObservers()).isFalse();
+
+		dataSource.getBalances(address).test();
+		verify(ledger, times(2)).getAtomUpdates(any(), any());
+	}
+}
@@ -1,11 +1,13 @@
 package com.radixdlt.client.application.translate;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.radixdlt.client.assets.Asset;
+import com.radixdlt.client.core.address.EUID;
 import com.radixdlt.client.core.address.RadixAddress;
 import com.radixdlt.client.core.atoms.AtomBuilder;
 import com.radixdlt.client.core.atoms.Consumable;
@@ -15,6 +17,7 @@ import com.radixdlt.client.core.atoms.UnsignedAtom;
 import com.radixdlt.client.core.crypto.ECKeyPair;
 import com.radixdlt.client.core.crypto.ECPublicKey;
 import io.reactivex.observers.TestObserver;
+import java.math.BigInteger;
 import java.util.Collection;
 import org.junit.Test;
 
@@ -84,4 +87,103 @@ public class TransactionAtomsTest {
 
 		observer.assertValue(collection -> collection.stream().findFirst().get().getNonce() == 2);
 	}
+
+	@Test
+	public void testBalancesFollowConsumables() {
+		ECKeyPair keyPair = new ECKeyPair(new ECPublicKey(new byte[33]));
+		RadixAddress address = mock(RadixAddress.class);
+		when(address.ownsKey(any(ECKeyPair.class))).thenReturn(true);
+		when(address.ownsKey(any(ECPublicKey.class))).thenReturn(true);
+
+		UnsignedAtom received = new AtomBuilder()
+			.type(TransactionAtom.class)
+			.addParticle(new Consumable(100, keyPair, 1, Asset.TEST.getId()))
+			.build();
+		UnsignedAtom spent = new AtomBuilder()
+			.type(TransactionAtom.class)
+			.addParticle(new Consumer(100, keyPair, 1, Asset.TEST.getId()))
+			.addParticle(new Consumable(30, keyPair, 2, Asset.TEST.getId()))
+			.build();
+
+		TransactionAtoms transactionAtoms = new TransactionAtoms(address, Asset.TEST.getId());
+		assertThat(transactionAtoms.getBalances()).isEmpty();
+
+		transactionAtoms.accept(received.getRawAtom().getAsTransactionAtom());
+		assertThat(transactionAtoms.getBalances()).containsEntry(Asset.TEST.getId(), 100L);
+
+		transactionAtoms.accept(spent.getRawAtom().getAsTransactionAtom());
+		assertThat(transactionAtoms.getBalances()).containsEntry(Asset.TEST.getId(), 30L);
+		assertThat(transactionAtoms.getUnconsumedConsumables()).extracting(Consumable::getNonce).containsExactly(2L);
+	}
+
+	@Test
+	public void testAllAssetsIndexed() {
+		ECKeyPair keyPair = new ECKeyPair(new ECPublicKey(new byte[33]));
+		RadixAddress address = mock(RadixAddress.class);
+		when(address.ownsKey(any(ECKeyPair.class))).thenReturn(true);
+		when(address.ownsKey(any(ECPublicKey.class))).thenReturn(true);
+		EUID otherAsset = new EUID(BigInteger.TEN);
+
+		UnsignedAtom unsignedAtom = new AtomBuilder()
+			.type(TransactionAtom.class)
+			.addParticle(new Consumable(100, keyPair, 1, Asset.TEST.getId()))
+			.addParticle(new Consumable(7, keyPair, 2, otherAsset))
+			.build();
+
+		TransactionAtoms transactionAtoms = new TransactionAtoms(address);
+		transactionAtoms.accept(unsignedAtom.getRawAtom().getAsTransactionAtom());
+
+		assertThat(transactionAtoms.getUnconsumedConsumables()).hasSize(2);
+		assertThat(transactionAtoms.getUnconsumedConsumables(otherAsset)).extracting(Consumable::getNonce).containsExactly(2L);
+		assertThat(transactionAtoms.getUnconsumedConsumables(new EUID(BigInteger.ONE))).isEmpty();
+		assertThat(transactionAtoms.getBalances())
+			.containsEntry(Asset.TEST.getId(), 100L)
+			.containsEntry(otherAsset, 7L);
+	}
+
+	@Test
+	public void testOutOfOrderHistoryApplied() {
+		ECKeyPair keyPair = new ECKeyPair(new ECPublicKey(new byte[33]));
+		RadixAddress address = mock(RadixAddress.class);
+		when(address.ownsKey(any(ECKeyPair.class))).thenReturn(true);
+		when(address.ownsKey(any(ECPublicKey.class))).thenReturn(true);
+
+		TransactionAtom first = new AtomBuilder()
+			.type(TransactionAtom.class)
+			.addParticle(new Consumable(10, keyPair, 1, Asset.TEST.getId()))
+			.build().getRawAtom().getAsTransactionAtom();
+		TransactionAtom second = new AtomBuilder()
+			.type(TransactionAtom.class)
+			.addParticle(new Consumable(20, keyPair, 2, Asset.TEST.getId()))
+			.build().getRawAtom().getAsTransactionAtom();
+		/* Consumes both earlier consumables */
+		TransactionAtom merge = new AtomBuilder()
+			.type(TransactionAtom.class)
+			.addParticle(new Consumer(10, keyPair, 1, Asset.TEST.getId()))
+			.addParticle(new Consumer(20, keyPair, 2, Asset.TEST.getId()))
+			.addParticle(new Consumable(30, keyPair, 3, Asset.TEST.getId()))
+			.build().getRawAtom().getAsTransactionAtom();
+		/* Two atoms waiting on the same consumable */
+		TransactionAtom spend = new AtomBuilder()
+			.type(TransactionAtom.class)
+			.addParticle(new Consumer(30, keyPair, 3, Asset.TEST.getId()))
+			.addParticle(new Consumable(30, keyPair, 4, Asset.TEST.getId()))
+			.build().getRawAtom().getAsTransactionAtom();
+		TransactionAtom conflicting = new AtomBuilder()
+			.type(TransactionAtom.class)
+			.addParticle(new Consumer(30, keyPair, 3, Asset.TEST.getId()))
+			.addParticle(new Consumable(30, keyPair, 5, Asset.TEST.getId()))
+			.build().getRawAtom().getAsTransactionAtom();
+
+		TransactionAtoms transactionAtoms = new TransactionAtoms(address, Asset.TEST.getId());
+		transactionAtoms.accept(spend).getNewValidTransactions().test().assertNoValues();
+		transactionAtoms.accept(conflicting).getNewValidTransactions().test().assertNoValues();
+		transactionAtoms.accept(merge).getNewValidTransactions().test().assertNoValues();
+		transactionAtoms.accept(second).getNewValidTransactions().test().assertValue(second);
+		transactionAtoms.accept(first).getNewValidTransactions().test().assertValues(first, merge, spend);
+
+		assertThat(transactionAtoms.getUnconsumedConsumables()).extracting(Consumable::getNonce).containsExactly(4L);
+		assertThat(transactionAtoms.getBalances()).containsEntry(Asset.TEST.getId(), 30L);
+		assertThat(transactionAtoms.getVersion()).isEqualTo(4);
+	}
 }
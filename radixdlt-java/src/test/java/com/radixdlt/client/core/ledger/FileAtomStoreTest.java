@@ -0,0 +1,100 @@
+package com.radixdlt.client.core.ledger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.client.core.address.EUID;
+import com.radixdlt.client.core.atoms.ApplicationPayloadAtom;
+import com.radixdlt.client.core.atoms.Atom;
+import com.radixdlt.client.core.atoms.AtomBuilder;
+import com.radixdlt.client.core.network.AtomCursor;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileAtomStoreTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static Atom atom(String payload) {
+		return new AtomBuilder()
+			.type(ApplicationPayloadAtom.class)
+			.applicationId("Test")
+			.payload(payload)
+			.addDestination(new EUID(BigInteger.ONE))
+			.build()
+			.getRawAtom();
+	}
+
+	@Test
+	public void testAtomsReadBackAfterReopen() throws IOException {
+		File file = new File(folder.getRoot(), "atoms.log");
+		EUID destination = new EUID(BigInteger.ONE);
+		Atom first = atom("Hello");
+		Atom second = atom("World");
+
+		try (FileAtomStore store = new FileAtomStore(file)) {
+			store.store(destination, first);
+			store.store(destination, second);
+			store.store(destination, first);
+			store.store(new EUID(BigInteger.TEN), second);
+		}
+
+		try (FileAtomStore store = new FileAtomStore(file)) {
+			store.getAtoms(destination).test()
+				.assertValues(first, second);
+			assertThat(store.contains(destination, second.getHid())).isTrue();
+			assertThat(store.contains(new EUID(BigInteger.ZERO), second.getHid())).isFalse();
+			assertThat(store.getAtoms(destination).blockingFirst().getAsMessageAtom().getPayload().toAscii()).isEqualTo("Hello");
+		}
+	}
+
+	@Test
+	public void testIncompleteRecordDropped() throws IOException {
+		File file = new File(folder.getRoot(), "atoms.log");
+		EUID destination = new EUID(BigInteger.ONE);
+		Atom first = atom("Hello");
+
+		try (FileAtomStore store = new FileAtomStore(file)) {
+			store.store(destination, first);
+			store.store(destination, atom("World"));
+		}
+
+		try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+			raw.setLength(raw.length() - 10);
+		}
+
+		try (FileAtomStore store = new FileAtomStore(file)) {
+			store.getAtoms(destination).test().assertValues(first);
+			Atom third = atom("Again");
+			store.store(destination, third);
+			store.getAtoms(destination).test().assertValues(first, third);
+		}
+	}
+
+	@Test
+	public void testCheckpointOverlapsLastStoredAtoms() throws IOException {
+		File file = new File(folder.getRoot(), "atoms.log");
+		EUID destination = new EUID(BigInteger.ONE);
+		Atom[] atoms = new Atom[FileAtomStore.CHECKPOINT_OVERLAP + 4];
+
+		try (FileAtomStore store = new FileAtomStore(file)) {
+			for (int i = 0; i < atoms.length; i++) {
+				atoms[i] = atom("Hello " + i);
+				store.store(destination, atoms[i]);
+				if (i == FileAtomStore.CHECKPOINT_OVERLAP - 1) {
+					// Too few atoms for an overlap so they are all fetched again
+					assertThat(store.getCheckpoint(destination)).isEmpty();
+				}
+			}
+		}
+
+		try (FileAtomStore store = new FileAtomStore(file)) {
+			assertThat(store.getCheckpoint(destination)).contains(AtomCursor.after(atoms[3]));
+			assertThat(store.getCheckpoint(new EUID(BigInteger.ZERO))).isEmpty();
+		}
+	}
+}
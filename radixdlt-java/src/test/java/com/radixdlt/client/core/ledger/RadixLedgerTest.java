@@ -1,24 +1,52 @@
 package com.radixdlt.client.core.ledger;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 
+import com.radixdlt.client.assets.Asset;
 import com.radixdlt.client.core.address.EUID;
 import com.radixdlt.client.core.atoms.ApplicationPayloadAtom;
 import com.radixdlt.client.core.atoms.Atom;
 import com.radixdlt.client.core.atoms.AtomBuilder;
+import com.radixdlt.client.core.atoms.TransactionAtom;
+import com.radixdlt.client.core.crypto.ECKeyPair;
+import com.radixdlt.client.core.crypto.ECPublicKey;
+import com.radixdlt.client.core.network.AtomCursor;
+import com.radixdlt.client.core.network.AtomQuery;
+import com.radixdlt.client.core.network.PeerHealth;
 import com.radixdlt.client.core.network.RadixJsonRpcClient;
 import com.radixdlt.client.core.network.RadixNetwork;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.functions.Consumer;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.subscribers.TestSubscriber;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 
 public class RadixLedgerTest {
+	private static RadixJsonRpcClient client() {
+		RadixJsonRpcClient client = mock(RadixJsonRpcClient.class);
+		when(client.getHealth()).thenReturn(new PeerHealth());
+		when(client.getAtomHistory(any(), anyInt(), anyInt())).thenReturn(Flowable.empty());
+		return client;
+	}
 
 	@Test
 	public void testFilterOutDuplicateAtoms() throws Exception {
@@ -31,7 +59,7 @@ public class RadixLedgerTest {
 			.getRawAtom();
 
 		Consumer<ApplicationPayloadAtom> observer = mock(Consumer.class);
-		RadixJsonRpcClient client = mock(RadixJsonRpcClient.class);
+		RadixJsonRpcClient client = client();
 		RadixNetwork network = mock(RadixNetwork.class);
 		when(network.getRadixClient(any(Long.class))).thenReturn(Single.just(client));
 		when(client.getAtoms(any())).thenReturn(Observable.just(atom, atom));
@@ -41,4 +69,360 @@ public class RadixLedgerTest {
 
 		verify(observer, times(1)).accept(any());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testSlowGetAtomIsHedged() {
+		TestScheduler scheduler = new TestScheduler();
+		RxJavaPlugins.setComputationSchedulerHandler(s -> scheduler);
+		try {
+			Atom atom = new AtomBuilder()
+				.type(ApplicationPayloadAtom.class)
+				.applicationId("Test")
+				.payload("Hello")
+				.addDestination(new EUID(BigInteger.ONE))
+				.build()
+				.getRawAtom();
+
+			RadixJsonRpcClient slow = client();
+			RadixJsonRpcClient fast = client();
+			PeerHealth health = new PeerHealth();
+			health.recordLatency(100);
+			when(slow.getHealth()).thenReturn(health);
+			when(slow.getAtom(any())).thenReturn(Maybe.never());
+			when(fast.getAtom(any())).thenReturn(Maybe.just(atom));
+
+			RadixNetwork network = mock(RadixNetwork.class);
+			when(network.getRadixClient(any(Long.class))).thenReturn(Single.just(slow));
+			when(network.getAlternativeRadixClient(any(), any())).thenReturn(Optional.of(fast));
+
+			RadixLedger ledger = new RadixLedger(0, network);
+			TestObserver<Atom> observer = ledger.getAtom(new EUID(BigInteger.ONE), atom.getHid()).test();
+
+			scheduler.advanceTimeBy(99, TimeUnit.MILLISECONDS);
+			observer.assertNoValues();
+			verify(fast, never()).getAtom(any());
+
+			scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+			observer.assertValue(atom);
+		} finally {
+			RxJavaPlugins.reset();
+		}
+	}
+
+	@Test
+	public void testAtomQueriesNotHedged() {
+		TestScheduler scheduler = new TestScheduler();
+		RxJavaPlugins.setComputationSchedulerHandler(s -> scheduler);
+		try {
+			RadixJsonRpcClient primary = client();
+			RadixJsonRpcClient secondary = client();
+			when(primary.getAtoms(any())).thenReturn(Observable.never());
+
+			RadixNetwork network = mock(RadixNetwork.class);
+			when(network.getRadixClient(any(Long.class))).thenReturn(Single.just(primary));
+			when(network.getAlternativeRadixClient(any(), any())).thenReturn(Optional.of(secondary));
+
+			RadixLedger ledger = new RadixLedger(0, network);
+			ledger.getAllAtoms(new EUID(BigInteger.ONE), ApplicationPayloadAtom.class).test();
+			scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+			verify(primary, times(1)).getAtoms(any());
+			verify(secondary, never()).getAtoms(any());
+		} finally {
+			RxJavaPlugins.reset();
+		}
+	}
+
+	@Test
+	public void testSlowFlowableSubscriberKeepsLatest() {
+		Atom[] atoms = new Atom[3];
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[i] = new AtomBuilder()
+				.type(ApplicationPayloadAtom.class)
+				.applicationId("Test")
+				.payload("Hello " + i)
+				.addDestination(new EUID(BigInteger.ONE))
+				.build()
+				.getRawAtom();
+		}
+
+		RadixJsonRpcClient client = client();
+		RadixNetwork network = mock(RadixNetwork.class);
+		when(network.getRadixClient(any(Long.class))).thenReturn(Single.just(client));
+		when(client.getAtoms(any())).thenReturn(Observable.fromArray(atoms).concatWith(Observable.never()));
+		RadixLedger ledger = new RadixLedger(0, network);
+
+		TestSubscriber<ApplicationPayloadAtom> subscriber = ledger
+			.getAllAtoms(new EUID(BigInteger.ONE), ApplicationPayloadAtom.class, BackpressureStrategy.LATEST)
+			.test(1);
+		subscriber.assertValues((ApplicationPayloadAtom) atoms[0]);
+
+		subscriber.request(1);
+		subscriber.assertValues((ApplicationPayloadAtom) atoms[0], (ApplicationPayloadAtom) atoms[2]);
+	}
+
+	@Test
+	public void testStoredAtomsServedBeforeNewerAtoms() throws Exception {
+		EUID destination = new EUID(BigInteger.ONE);
+		Atom stored = new AtomBuilder()
+			.type(ApplicationPayloadAtom.class)
+			.applicationId("Test")
+			.payload("Stored")
+			.addDestination(destination)
+			.build()
+			.getRawAtom();
+		Atom received = new AtomBuilder()
+			.type(ApplicationPayloadAtom.class)
+			.applicationId("Test")
+			.payload("Received")
+			.addDestination(destination)
+			.build()
+			.getRawAtom();
+
+		AtomStore store = mock(AtomStore.class);
+		when(store.getAtoms(destination)).thenReturn(Observable.just(stored));
+		when(store.getCheckpoint(destination)).thenReturn(Optional.of(AtomCursor.after(stored)));
+
+		RadixJsonRpcClient client = client();
+		RadixNetwork network = mock(RadixNetwork.class);
+		when(network.getRadixClient(any(Long.class))).thenReturn(Single.just(client));
+		when(client.getAtoms(any())).thenReturn(Observable.just(stored, received));
+
+		RadixLedger ledger = new RadixLedger(0, network);
+		ledger.setAtomStore(store);
+		ledger.getAllAtoms(destination, ApplicationPayloadAtom.class).test()
+			.assertValues((ApplicationPayloadAtom) stored, (ApplicationPayloadAtom) received);
+
+		verify(client).getAtoms(argThat((AtomQuery<Atom> query) -> query.getCursor().equals(Optional.of(AtomCursor.after(stored)))));
+		verify(store).store(destination, received);
+	}
+
+	@Test
+	public void testQueriesForDestinationShared() {
+		EUID destination = new EUID(BigInteger.ONE);
+		Atom atom = new AtomBuilder()
+			.type(ApplicationPayloadAtom.class)
+			.applicationId("Test")
+			.payload("Hello")
+			.addDestination(destination)
+			.build()
+			.getRawAtom();
+
+		RadixJsonRpcClient client = client();
+		RadixNetwork network = mock(RadixNetwork.class);
+		when(network.getRadixClient(any(Long.class))).thenReturn(Single.just(client));
+		when(client.getAtoms(any())).thenReturn(Observable.just(atom).concatWith(Observable.never()));
+
+		RadixLedger ledger = new RadixLedger(0, network);
+		TestObserver<ApplicationPayloadAtom> first = ledger.getAllAtoms(destination, ApplicationPayloadAtom.class).test();
+		TestObserver<TransactionAtom> transactions = ledger.getAllAtoms(destination, TransactionAtom.class).test();
+		TestObserver<ApplicationPayloadAtom> late = ledger.getAllAtoms(destination, ApplicationPayloadAtom.class).test();
+
+		first.assertValue((ApplicationPayloadAtom) atom);
+		late.assertValue((ApplicationPayloadAtom) atom);
+		transactions.assertNoValues();
+		verify(client, times(1)).getAtoms(any());
+	}
+
+	@Test
+	public void testQueryRepeatedAfterLastSubscriberLeaves() {
+		EUID destination = new EUID(BigInteger.ONE);
+		Atom atom = new AtomBuilder()
+			.type(ApplicationPayloadAtom.class)
+			.applicationId("Test")
+			.payload("Hello")
+			.addDestination(destination)
+			.build()
+			.getRawAtom();
+
+		RadixJsonRpcClient client = client();
+		RadixNetwork network = mock(RadixNetwork.class);
+		when(network.getRadixClient(any(Long.class))).thenReturn(Single.just(client));
+		when(client.getAtoms(any())).thenReturn(Observable.just(atom).concatWith(Observable.never()));
+
+		RadixLedger ledger = new RadixLedger(0, network);
+		TestObserver<ApplicationPayloadAtom> first = ledger.getAllAtoms(destination, ApplicationPayloadAtom.class).test();
+		first.assertValue((ApplicationPayloadAtom) atom);
+		first.dispose();
+
+		ledger.getAllAtoms(destination, ApplicationPayloadAtom.class).test()
+			.assertValue((ApplicationPayloadAtom) atom);
+		verify(client, times(2)).getAtoms(any());
+	}
+
+	@Test
+	public void testLateSubscriberQueriesOnceReplayTruncated() {
+		EUID destination = new EUID(BigInteger.ONE);
+		Atom[] atoms = new Atom[3];
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[i] = new AtomBuilder()
+				.type(ApplicationPayloadAtom.class)
+				.applicationId("Test")
+				.payload("Hello " + i)
+				.addDestination(destination)
+				.build()
+				.getRawAtom();
+		}
+
+		RadixJsonRpcClient client = client();
+		RadixNetwork network = mock(RadixNetwork.class);
+		when(network.getRadixClient(any(Long.class))).thenReturn(Single.just(client));
+		when(client.getAtoms(any())).thenReturn(Observable.fromArray(atoms).concatWith(Observable.never()));
+
+		RadixLedger ledger = new RadixLedger(0, network);
+		ledger.setMaxReplayedAtoms(2);
+		ledger.getAllAtoms(destination, ApplicationPayloadAtom.class).test().assertValueCount(3);
+
+		ledger.getAllAtoms(destination, ApplicationPayloadAtom.class).test()
+			.assertValues((ApplicationPayloadAtom) atoms[0], (ApplicationPayloadAtom) atoms[1], (ApplicationPayloadAtom) atoms[2]);
+		verify(client, times(2)).getAtoms(any());
+	}
+
+	@Test
+	public void testRetryResumesAfterRecentAtoms() {
+		EUID destination = new EUID(BigInteger.ONE);
+		Atom[] atoms = new Atom[RadixLedger.RESUME_OVERLAP + 5];
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[i] = new AtomBuilder()
+				.type(ApplicationPayloadAtom.class)
+				.applicationId("Test")
+				.payload("Hello " + i)
+				.addDestination(destination)
+				.build()
+				.getRawAtom();
+		}
+		final int failAt = atoms.length - 1;
+
+		RadixJsonRpcClient client = client();
+		RadixNetwork network = mock(RadixNetwork.class);
+		when(network.getRadixClient(any(Long.class))).thenReturn(Single.just(client));
+		when(client.getAtoms(any()))
+			.thenReturn(Observable.fromArray(atoms).take(failAt).concatWith(Observable.error(new IOException())))
+			.thenReturn(Observable.fromArray(atoms).skip(failAt - RadixLedger.RESUME_OVERLAP).concatWith(Observable.never()));
+
+		RadixLedger ledger = new RadixLedger(0, network);
+		ledger.setQueryRetryPolicy((attempt, elapsedMillis, error) -> attempt > 1 ? -1 : 0);
+		TestObserver<Atom> observer = ledger.getAllAtoms(destination, Atom.class).test();
+
+		observer.awaitCount(atoms.length);
+		observer.assertValues(atoms);
+		AtomCursor resumed = AtomCursor.after(atoms[failAt - RadixLedger.RESUME_OVERLAP - 1]);
+		verify(client).getAtomHistory(
+			argThat((AtomQuery<Atom> query) -> query.getCursor().equals(Optional.of(resumed))), anyInt(), anyInt()
+		);
+	}
+
+	@Test
+	public void testHistoryEndMarkedBeforeNewAtoms() {
+		EUID destination = new EUID(BigInteger.ONE);
+		Atom[] atoms = new Atom[3];
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[i] = new AtomBuilder()
+				.type(ApplicationPayloadAtom.class)
+				.applicationId("Test")
+				.payload("Hello " + i)
+				.addDestination(destination)
+				.build()
+				.getRawAtom();
+		}
+
+		RadixJsonRpcClient client = client();
+		RadixNetwork network = mock(RadixNetwork.class);
+		when(network.getRadixClient(any(Long.class))).thenReturn(Single.just(client));
+		when(client.getAtomHistory(any(), anyInt(), anyInt())).thenReturn(Flowable.just(atoms[0], atoms[1]));
+		when(client.getAtoms(any())).thenReturn(Observable.just(atoms[2]).concatWith(Observable.never()));
+
+		RadixLedger ledger = new RadixLedger(0, network);
+		TestObserver<String> observer = ledger.getAtomUpdates(destination, Atom.class)
+			.map(update -> update.isHistoryEnd() ? "end" : update.getAtom().getAsMessageAtom().getApplicationId())
+			.test();
+
+		observer.awaitCount(4);
+		observer.assertValues("Test", "Test", "end", "Test");
+		AtomCursor live = AtomCursor.after(atoms[1]);
+		verify(client).getAtoms(argThat((AtomQuery<Atom> query) -> query.getCursor().equals(Optional.of(live))));
+	}
+
+	@Test
+	public void testInvalidAtomMarksPeerUntrusted() {
+		ECKeyPair keyPair = new ECKeyPair(new ECPublicKey(new byte[33]));
+		EUID destination = new EUID(BigInteger.ONE);
+		Atom unsigned = new AtomBuilder()
+			.type(TransactionAtom.class)
+			.addParticle(new com.radixdlt.client.core.atoms.Consumer(100, keyPair, 1, Asset.TEST.getId()))
+			.addDestination(destination)
+			.build()
+			.getRawAtom();
+		Atom atom = new AtomBuilder()
+			.type(ApplicationPayloadAtom.class)
+			.applicationId("Test")
+			.payload("Hello")
+			.addDestination(destination)
+			.build()
+			.getRawAtom();
+
+		RadixJsonRpcClient bad = client();
+		RadixJsonRpcClient good = client();
+		PeerHealth badHealth = new PeerHealth();
+		when(bad.getHealth()).thenReturn(badHealth);
+		when(bad.getAtoms(any())).thenReturn(Observable.just(unsigned, atom));
+		when(good.getAtoms(any())).thenReturn(Observable.just(atom));
+
+		RadixNetwork network = mock(RadixNetwork.class);
+		when(network.getRadixClient(any(Long.class))).thenReturn(Single.defer(() -> Single.just(badHealth.isAvailable() ? bad : good)));
+
+		RadixLedger ledger = new RadixLedger(0, network);
+		ledger.setValidationScheduler(Schedulers.trampoline(), 2);
+		ledger.setQueryRetryPolicy((attempt, elapsedMillis, error) -> attempt > 1 ? -1 : 0);
+		TestObserver<ApplicationPayloadAtom> observer = ledger.getAllAtoms(destination, ApplicationPayloadAtom.class).test();
+
+		observer.awaitCount(1);
+		observer.assertValue((ApplicationPayloadAtom) atom);
+		assertThat(badHealth.isTrusted()).isFalse();
+		assertThat(badHealth.isAvailable()).isFalse();
+		verify(good, times(1)).getAtoms(any());
+	}
+
+	@Test
+	public void testAtomInvalidOnEveryPeerSkipped() {
+		ECKeyPair keyPair = new ECKeyPair(new ECPublicKey(new byte[33]));
+		EUID destination = new EUID(BigInteger.ONE);
+		Atom unsigned = new AtomBuilder()
+			.type(TransactionAtom.class)
+			.addParticle(new com.radixdlt.client.core.atoms.Consumer(100, keyPair, 1, Asset.TEST.getId()))
+			.addDestination(destination)
+			.build()
+			.getRawAtom();
+		Atom atom = new AtomBuilder()
+			.type(ApplicationPayloadAtom.class)
+			.applicationId("Test")
+			.payload("Hello")
+			.addDestination(destination)
+			.build()
+			.getRawAtom();
+
+		RadixJsonRpcClient first = client();
+		RadixJsonRpcClient second = client();
+		PeerHealth firstHealth = new PeerHealth();
+		PeerHealth secondHealth = new PeerHealth();
+		when(first.getHealth()).thenReturn(firstHealth);
+		when(second.getHealth()).thenReturn(secondHealth);
+		when(first.getAtoms(any())).thenReturn(Observable.just(unsigned, atom).concatWith(Observable.never()));
+		when(second.getAtoms(any())).thenReturn(Observable.just(unsigned, atom).concatWith(Observable.never()));
+
+		RadixNetwork network = mock(RadixNetwork.class);
+		when(network.getRadixClient(any(Long.class))).thenReturn(Single.defer(() -> Single.just(firstHealth.isAvailable() ? first : second)));
+
+		RadixLedger ledger = new RadixLedger(0, network);
+		ledger.setValidationScheduler(Schedulers.trampoline(), 2);
+		ledger.setQueryRetryPolicy((attempt, elapsedMillis, error) -> attempt > 1 ? -1 : 0);
+		TestObserver<ApplicationPayloadAtom> observer = ledger.getAllAtoms(destination, ApplicationPayloadAtom.class).test();
+
+		// The atom is on the ledger but fails local validation, so only the first peer is blamed
+		observer.awaitCount(1);
+		observer.assertValue((ApplicationPayloadAtom) atom);
+		observer.assertNoErrors();
+		assertThat(firstHealth.isTrusted()).isFalse();
+		assertThat(secondHealth.isTrusted()).isTrue();
+	}
+}
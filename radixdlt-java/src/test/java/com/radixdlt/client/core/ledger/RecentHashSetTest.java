@@ -0,0 +1,55 @@
+package com.radixdlt.client.core.ledger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.radixdlt.client.core.atoms.RadixHash;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class RecentHashSetTest {
+	private static RadixHash hash(int i) {
+		return RadixHash.of(new byte[] {(byte) (i >> 24), (byte) (i >> 16), (byte) (i >> 8), (byte) i});
+	}
+
+	@Test
+	public void testDuplicatesRejected() {
+		RecentHashSet set = new RecentHashSet(10);
+		assertThat(set.add(hash(1))).isTrue();
+		assertThat(set.add(hash(2))).isTrue();
+		assertThat(set.add(hash(1))).isFalse();
+		assertThat(set.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void testOldestForgottenOnceFull() {
+		final int maxSize = 1000;
+		RecentHashSet set = new RecentHashSet(maxSize);
+		List<RadixHash> hashes = new ArrayList<>();
+		for (int i = 0; i < maxSize * 3; i++) {
+			hashes.add(hash(i));
+			assertThat(set.add(hashes.get(i))).isTrue();
+		}
+
+		assertThat(set.size()).isEqualTo(maxSize);
+		for (int i = 0; i < hashes.size(); i++) {
+			assertThat(set.contains(hashes.get(i))).isEqualTo(i >= maxSize * 2);
+		}
+	}
+
+	@Test
+	public void testSharedPrefixNotTakenForDuplicate() {
+		RadixHash first = mock(RadixHash.class);
+		RadixHash second = mock(RadixHash.class);
+		when(first.getLongPrefix()).thenReturn(42L);
+		when(second.getLongPrefix()).thenReturn(42L);
+
+		RecentHashSet set = new RecentHashSet(10);
+		assertThat(set.add(first)).isTrue();
+		assertThat(set.add(second)).isTrue();
+		assertThat(set.contains(second)).isTrue();
+		assertThat(set.add(second)).isFalse();
+	}
+}
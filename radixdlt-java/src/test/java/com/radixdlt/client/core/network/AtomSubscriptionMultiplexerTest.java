@@ -0,0 +1,86 @@
+package com.radixdlt.client.core.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.client.core.address.EUID;
+import com.radixdlt.client.core.atoms.ApplicationPayloadAtom;
+import com.radixdlt.client.core.atoms.Atom;
+import com.radixdlt.client.core.atoms.AtomBuilder;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.PublishSubject;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class AtomSubscriptionMultiplexerTest {
+
+	private static Atom atom(EUID... destinations) {
+		AtomBuilder builder = new AtomBuilder()
+			.type(ApplicationPayloadAtom.class)
+			.applicationId("Test")
+			.payload("Hello");
+		for (EUID destination : destinations) {
+			builder.addDestination(destination);
+		}
+		return builder.build().getRawAtom();
+	}
+
+	@Test
+	public void testDestinationsBatchedAndDemultiplexed() {
+		TestScheduler scheduler = new TestScheduler();
+		List<AtomQuery<Atom>> queries = new ArrayList<>();
+		PublishSubject<Atom> node = PublishSubject.create();
+		AtomSubscriptionMultiplexer multiplexer = new AtomSubscriptionMultiplexer(query -> {
+			queries.add(query);
+			return node;
+		}, 100, 50, scheduler);
+
+		EUID one = new EUID(BigInteger.ONE);
+		EUID two = new EUID(BigInteger.valueOf(2));
+		TestObserver<Atom> first = multiplexer.getAtoms(one, Atom.class).test();
+		TestObserver<Atom> second = multiplexer.getAtoms(two, Atom.class).test();
+
+		scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+		assertThat(queries).hasSize(1);
+		assertThat(queries.get(0).getDestinations()).containsExactlyInAnyOrder(one, two);
+
+		Atom toOne = atom(one);
+		Atom toBoth = atom(one, two);
+		node.onNext(toOne);
+		node.onNext(toBoth);
+		node.onNext(atom(new EUID(BigInteger.TEN)));
+
+		first.assertValues(toOne, toBoth);
+		second.assertValues(toBoth);
+
+		first.dispose();
+		assertThat(node.hasObservers()).isTrue();
+		second.dispose();
+		assertThat(node.hasObservers()).isFalse();
+		assertThat(multiplexer.getDestinationCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testFullBatchSubscribedImmediately() {
+		TestScheduler scheduler = new TestScheduler();
+		List<AtomQuery<Atom>> queries = new ArrayList<>();
+		AtomSubscriptionMultiplexer multiplexer = new AtomSubscriptionMultiplexer(query -> {
+			queries.add(query);
+			return PublishSubject.create();
+		}, 2, 50, scheduler);
+
+		for (int i = 1; i <= 3; i++) {
+			multiplexer.getAtoms(new EUID(BigInteger.valueOf(i)), Atom.class).test();
+		}
+
+		scheduler.triggerActions();
+		assertThat(queries).hasSize(1);
+		assertThat(queries.get(0).getDestinations()).hasSize(2);
+
+		scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+		assertThat(queries).hasSize(2);
+	}
+}
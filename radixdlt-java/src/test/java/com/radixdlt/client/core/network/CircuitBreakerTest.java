@@ -0,0 +1,48 @@
+package com.radixdlt.client.core.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+	@Test
+	public void testOpensAfterConsecutiveFailures() {
+		AtomicLong now = new AtomicLong(0);
+		CircuitBreaker breaker = new CircuitBreaker(3, 1000, now::get);
+
+		breaker.recordFailure();
+		breaker.recordFailure();
+		breaker.recordSuccess();
+		breaker.recordFailure();
+		breaker.recordFailure();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+		breaker.recordFailure();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(breaker.allowsRequests()).isFalse();
+	}
+
+	@Test
+	public void testHalfOpenAfterCoolDown() {
+		AtomicLong now = new AtomicLong(0);
+		CircuitBreaker breaker = new CircuitBreaker(1, 1000, now::get);
+
+		breaker.recordFailure();
+		now.set(999);
+		assertThat(breaker.allowsRequests()).isFalse();
+
+		now.set(1000);
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		assertThat(breaker.allowsRequests()).isTrue();
+
+		// A failed trial opens the breaker for another cool down
+		breaker.recordFailure();
+		assertThat(breaker.allowsRequests()).isFalse();
+
+		now.set(2000);
+		breaker.recordSuccess();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+}
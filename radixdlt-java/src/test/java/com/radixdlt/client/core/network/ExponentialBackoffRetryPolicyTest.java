@@ -0,0 +1,55 @@
+package com.radixdlt.client.core.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.TestScheduler;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ExponentialBackoffRetryPolicyTest {
+
+	@Test
+	public void testGivesUpAfterMaxAttemptsOrDeadline() {
+		ExponentialBackoff backoff = new ExponentialBackoff(1000, 8000, new Random(1));
+		RetryPolicy policy = new ExponentialBackoffRetryPolicy(backoff, 3, 10_000, IOException.class::isInstance);
+		IOException error = new IOException();
+
+		assertThat(policy.getRetryDelayMillis(1, 0, error)).isBetween(500L, 1000L);
+		assertThat(policy.getRetryDelayMillis(3, 0, error)).isBetween(2000L, 4000L);
+		assertThat(policy.getRetryDelayMillis(4, 0, error)).isNegative();
+		assertThat(policy.getRetryDelayMillis(1, 10_000, error)).isNegative();
+		assertThat(policy.getRetryDelayMillis(1, 0, new IllegalStateException())).isNegative();
+	}
+
+	@Test
+	public void testRetryTimerResubscribes() {
+		TestScheduler scheduler = new TestScheduler();
+		RxJavaPlugins.setComputationSchedulerHandler(s -> scheduler);
+		try {
+			AtomicInteger subscriptions = new AtomicInteger(0);
+			RetryPolicy policy = (attempt, elapsedMillis, error) -> attempt > 2 ? -1 : 1000;
+
+			TestObserver<Object> observer = Observable.defer(() -> {
+				subscriptions.incrementAndGet();
+				return Observable.error(new IOException());
+			})
+				.retryWhen(new RetryTimer(policy))
+				.test();
+
+			observer.assertNoErrors();
+			scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+			assertThat(subscriptions.get()).isEqualTo(2);
+			scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+			assertThat(subscriptions.get()).isEqualTo(3);
+			observer.assertError(IOException.class);
+		} finally {
+			RxJavaPlugins.reset();
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.radixdlt.client.core.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.SingleSubject;
+import org.junit.Test;
+
+public class InFlightWindowTest {
+
+	@Test
+	public void testRequestsQueuedWhenWindowFull() {
+		InFlightWindow window = new InFlightWindow(2);
+		SingleSubject<Integer> first = SingleSubject.create();
+		SingleSubject<Integer> second = SingleSubject.create();
+		SingleSubject<Integer> third = SingleSubject.create();
+
+		TestObserver<Integer> firstObserver = window.submit(first).test();
+		window.submit(second).test();
+		TestObserver<Integer> thirdObserver = window.submit(third).test();
+
+		assertThat(window.getInFlight()).isEqualTo(2);
+		assertThat(window.getQueued()).isEqualTo(1);
+		assertThat(third.hasObservers()).isFalse();
+
+		first.onSuccess(1);
+		firstObserver.assertValue(1);
+		assertThat(third.hasObservers()).isTrue();
+		assertThat(window.getQueued()).isEqualTo(0);
+
+		third.onSuccess(3);
+		thirdObserver.assertValue(3);
+		assertThat(window.getInFlight()).isEqualTo(1);
+	}
+
+	@Test
+	public void testDisposeReleasesSlot() {
+		InFlightWindow window = new InFlightWindow(1);
+		SingleSubject<Integer> first = SingleSubject.create();
+		SingleSubject<Integer> second = SingleSubject.create();
+		SingleSubject<Integer> third = SingleSubject.create();
+
+		TestObserver<Integer> firstObserver = window.submit(first).test();
+		TestObserver<Integer> secondObserver = window.submit(second).test();
+		window.submit(third).test();
+
+		secondObserver.cancel();
+		firstObserver.cancel();
+
+		assertThat(second.hasObservers()).isFalse();
+		assertThat(third.hasObservers()).isTrue();
+		assertThat(window.getInFlight()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,47 @@
+package com.radixdlt.client.core.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class OrderedDecoderTest {
+
+	@Test
+	public void testDecodedInArrivalOrder() throws InterruptedException {
+		OrderedDecoder decoder = new OrderedDecoder(Schedulers.computation(), 4);
+		Set<String> threads = ConcurrentHashMap.newKeySet();
+
+		TestObserver<Integer> observer = Observable.range(0, 50)
+			.compose(decoder.<Integer, Integer>decode(i -> {
+				threads.add(Thread.currentThread().getName());
+				// Later items finish first if they are not kept in order
+				Thread.sleep((50 - i) % 5);
+				return i * 2;
+			}, i -> false))
+			.test();
+
+		observer.await(10, TimeUnit.SECONDS);
+		List<Integer> expected = IntStream.range(0, 50).map(i -> i * 2).boxed().collect(Collectors.toList());
+		observer.assertValueSequence(expected);
+		assertThat(threads).doesNotContain(Thread.currentThread().getName());
+	}
+
+	@Test
+	public void testCheapItemsDecodedInPlace() {
+		OrderedDecoder decoder = new OrderedDecoder(Schedulers.computation(), 4);
+
+		Observable.just("a", "b")
+			.compose(decoder.<String, String>decode(s -> Thread.currentThread().getName(), s -> true))
+			.test()
+			.assertValues(Thread.currentThread().getName(), Thread.currentThread().getName());
+	}
+}
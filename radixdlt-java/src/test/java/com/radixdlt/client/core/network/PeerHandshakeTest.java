@@ -0,0 +1,85 @@
+package com.radixdlt.client.core.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.reactivex.Single;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.SingleSubject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class PeerHandshakeTest {
+	private final TestScheduler scheduler = new TestScheduler();
+	private final Map<String, SingleSubject<NodeRunnerData>> requests = new HashMap<>();
+
+	private PeerHandshake handshake(int peersPerShardRange, int maxConnections) {
+		return new PeerHandshake(8, peersPerShardRange, maxConnections, peer -> {
+			SingleSubject<NodeRunnerData> request = SingleSubject.create();
+			requests.put(peer.getLocation(), request);
+			return request;
+		}, scheduler);
+	}
+
+	private static RadixPeer peer(String location, long low, long high) {
+		return new RadixPeer(location, false, 8080).data(new NodeRunnerData(location, low, high));
+	}
+
+	@Test
+	public void testNextPeerTriedAfterFailure() {
+		PeerHandshake handshake = handshake(1, 16);
+		handshake.offer(peer("1", 0, 10));
+		handshake.offer(peer("2", 0, 10));
+		handshake.offer(peer("3", 11, 20));
+
+		assertThat(requests).isEmpty();
+		scheduler.advanceTimeBy(250, TimeUnit.MILLISECONDS);
+		assertThat(requests).containsOnlyKeys("1", "3");
+
+		requests.get("1").onError(new RuntimeException());
+		assertThat(requests).containsOnlyKeys("1", "2", "3");
+	}
+
+	@Test
+	public void testHealthiestPeersConnectedFirst() {
+		PeerHandshake handshake = handshake(2, 16);
+		for (int i = 1; i <= 4; i++) {
+			RadixPeer peer = peer(Integer.toString(i), 0, 10);
+			peer.getRadixClient().getHealth().recordLatency(i == 3 ? 10 : 100 * i);
+			handshake.offer(peer);
+		}
+
+		scheduler.advanceTimeBy(250, TimeUnit.MILLISECONDS);
+		assertThat(requests).containsOnlyKeys("1", "3");
+	}
+
+	@Test
+	public void testConnectionsBoundedInTotal() {
+		PeerHandshake handshake = handshake(2, 3);
+		for (int i = 0; i < 10; i++) {
+			handshake.offer(peer(Integer.toString(i), i * 10, i * 10 + 9));
+		}
+
+		scheduler.advanceTimeBy(250, TimeUnit.MILLISECONDS);
+		assertThat(requests).hasSize(3);
+	}
+
+	@Test
+	public void testMismatchedPeerRejected() {
+		PeerHandshake handshake = new PeerHandshake(
+			8, 1, 16, peer -> Single.just(new NodeRunnerData(peer.getLocation(), 0, 5)), scheduler
+		);
+		TestObserver<RadixPeer> rejected = handshake.getRejectedPeers().test();
+
+		RadixPeer first = peer("1", 0, 10);
+		RadixPeer unknown = new RadixPeer("2", false, 8080);
+		handshake.offer(first);
+		handshake.offer(unknown);
+		scheduler.advanceTimeBy(250, TimeUnit.MILLISECONDS);
+
+		rejected.assertValue(first);
+		assertThat(unknown.getData()).contains(new NodeRunnerData("2", 0, 5));
+	}
+}
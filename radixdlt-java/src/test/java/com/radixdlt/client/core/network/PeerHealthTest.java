@@ -0,0 +1,55 @@
+package com.radixdlt.client.core.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class PeerHealthTest {
+
+	@Test
+	public void testTrustRestoredAfterLongerPeriodEachTime() {
+		AtomicLong now = new AtomicLong(1000);
+		PeerHealth health = new PeerHealth(new CircuitBreaker(5, 1000, now::get), now::get);
+		assertThat(health.isAvailable()).isTrue();
+
+		health.markUntrusted();
+		assertThat(health.isAvailable()).isFalse();
+		assertThat(health.getUntrustedMillis()).isEqualTo(TimeUnit.MINUTES.toMillis(10));
+
+		now.addAndGet(TimeUnit.MINUTES.toMillis(10));
+		assertThat(health.isTrusted()).isTrue();
+		assertThat(health.isAvailable()).isTrue();
+
+		health.markUntrusted();
+		now.addAndGet(TimeUnit.MINUTES.toMillis(10));
+		assertThat(health.isTrusted()).isFalse();
+		now.addAndGet(TimeUnit.MINUTES.toMillis(10));
+		assertThat(health.isTrusted()).isTrue();
+	}
+
+	@Test
+	public void testUntrustedPeriodCappedAndResetOnceValid() {
+		AtomicLong now = new AtomicLong(1000);
+		PeerHealth health = new PeerHealth(new CircuitBreaker(5, 1000, now::get), now::get);
+		for (int i = 0; i < 10; i++) {
+			health.markUntrusted();
+			now.addAndGet(health.getUntrustedMillis());
+		}
+
+		health.markUntrusted();
+		assertThat(health.getUntrustedMillis()).isEqualTo(TimeUnit.HOURS.toMillis(1));
+
+		// Valid atoms served while still untrusted do not shorten the escalation
+		health.markValid();
+		now.addAndGet(health.getUntrustedMillis());
+		health.markUntrusted();
+		assertThat(health.getUntrustedMillis()).isEqualTo(TimeUnit.HOURS.toMillis(1));
+
+		now.addAndGet(health.getUntrustedMillis());
+		health.markValid();
+		health.markUntrusted();
+		assertThat(health.getUntrustedMillis()).isEqualTo(TimeUnit.MINUTES.toMillis(10));
+	}
+}
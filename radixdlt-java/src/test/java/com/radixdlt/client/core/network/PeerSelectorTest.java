@@ -0,0 +1,40 @@
+package com.radixdlt.client.core.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class PeerSelectorTest {
+
+	@Test
+	public void testLowerLatencyPeerPreferred() {
+		RadixPeer fast = new RadixPeer("fast", false, 8080);
+		RadixPeer slow = new RadixPeer("slow", false, 8080);
+		fast.getRadixClient().getHealth().recordLatency(20);
+		slow.getRadixClient().getHealth().recordLatency(800);
+
+		PeerSelector selector = new PeerSelector(new Random(1));
+		IntStream.range(0, 20).forEach(i ->
+			assertThat(selector.select(Arrays.asList(slow, fast))).contains(fast)
+		);
+	}
+
+	@Test
+	public void testUnmeasuredPeerPreferredOverSlowPeer() {
+		RadixPeer unknown = new RadixPeer("unknown", false, 8080);
+		RadixPeer slow = new RadixPeer("slow", false, 8080);
+		slow.getRadixClient().getHealth().recordLatency(5000);
+
+		PeerSelector selector = new PeerSelector(new Random(1));
+		assertThat(selector.select(Arrays.asList(slow, unknown))).contains(unknown);
+	}
+
+	@Test
+	public void testNoCandidates() {
+		assertThat(new PeerSelector().select(Collections.emptyList())).isEmpty();
+	}
+}
@@ -0,0 +1,76 @@
+package com.radixdlt.client.core.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.client.core.atoms.Shards;
+import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PeersFromCacheTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSavedPeersLoadedFastestFirst() throws IOException {
+		File file = new File(folder.getRoot(), "peers.json");
+		RadixPeer slow = new RadixPeer("1", false, 8080).data(new NodeRunnerData("1", 0, 10));
+		RadixPeer fast = new RadixPeer("2", true, 443, true).data(new NodeRunnerData("2", 11, 20));
+		slow.getRadixClient().getHealth().recordLatency(900);
+		fast.getRadixClient().getHealth().recordLatency(30);
+
+		PeersFromCache cache = new PeersFromCache(() -> Observable.just(slow, fast), file);
+		cache.findPeers().test().assertValueCount(2);
+		cache.save();
+
+		List<RadixPeer> loaded = new PeersFromCache(Observable::empty, file).load();
+		assertThat(loaded).extracting(RadixPeer::getLocation).containsExactly("2", "1");
+		assertThat(loaded.get(0).isSsl()).isTrue();
+		assertThat(loaded.get(0).getPort()).isEqualTo(443);
+		assertThat(loaded.get(0).isCompressed()).isTrue();
+		assertThat(loaded.get(1).isCompressed()).isFalse();
+		assertThat(loaded.get(0).getData().get().getShards()).isEqualTo(Shards.range(11, 20));
+		assertThat(loaded.get(0).getRadixClient().getHealth().getLatencyMillis()).isEqualTo(30.0);
+	}
+
+	@Test
+	public void testRediscoveredPeerRefreshesCachedPeer() throws IOException {
+		File file = new File(folder.getRoot(), "peers.json");
+		PeersFromCache old = new PeersFromCache(
+			() -> Observable.just(new RadixPeer("1", false, 8080).data(new NodeRunnerData("1", 0, 10))),
+			file
+		);
+		old.findPeers().test().assertValueCount(1);
+		old.close();
+
+		PeersFromCache cache = new PeersFromCache(
+			() -> Observable.just(new RadixPeer("1", false, 8080).data(new NodeRunnerData("1", 20, 30))),
+			file
+		);
+		TestObserver<RadixPeer> observer = cache.findPeers().test();
+		List<RadixPeer> found = observer.assertValueCount(1).values();
+		assertThat(found).hasSize(1);
+		assertThat(found.get(0).getData().get().getShards()).isEqualTo(Shards.range(20, 30));
+		observer.dispose();
+		cache.close();
+
+		assertThat(new PeersFromCache(Observable::empty, file).load())
+			.extracting(peer -> peer.getData().get().getShards())
+			.containsExactly(Shards.range(20, 30));
+	}
+
+	@Test
+	public void testUnreadableCacheIgnored() throws IOException {
+		File file = folder.newFile("peers.json");
+		Files.write(file.toPath(), "{not json".getBytes(StandardCharsets.UTF_8));
+
+		assertThat(new PeersFromCache(Observable::empty, file).load()).isEmpty();
+	}
+}
@@ -1,5 +1,6 @@
 package com.radixdlt.client.core.network;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -20,8 +21,18 @@ import com.radixdlt.client.core.serialization.RadixJson;
 import io.reactivex.Completable;
 import io.reactivex.Observable;
 import io.reactivex.observers.TestObserver;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.TestScheduler;
 import io.reactivex.subjects.ReplaySubject;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.Test;
 
 public class RadixJsonRpcClientTest {
@@ -88,6 +99,120 @@ public class RadixJsonRpcClientTest {
 		observer.assertValue(data -> data.getShards().equals(Shards.range(-1, 1)));
 	}
 
+	@Test
+	public void connectionLossCountsAsOneFailure() {
+		WebSocketClient wsClient = mock(WebSocketClient.class);
+		when(wsClient.getStatus()).thenReturn(Observable.just(RadixClientStatus.OPEN));
+
+		ReplaySubject<String> messages = ReplaySubject.create();
+		when(wsClient.getMessages()).thenReturn(messages);
+		when(wsClient.connect()).thenReturn(Completable.complete());
+		when(wsClient.send(any())).thenReturn(true);
+
+		RadixJsonRpcClient jsonRpcClient = new RadixJsonRpcClient(wsClient);
+		List<TestObserver<NodeRunnerData>> observers = IntStream.range(0, 8)
+			.mapToObj(i -> jsonRpcClient.getSelf().test())
+			.collect(Collectors.toList());
+
+		messages.onError(new IOException());
+
+		observers.forEach(observer -> observer.assertError(IOException.class));
+		assertThat(jsonRpcClient.getHealth().getCircuitBreaker().getConsecutiveFailures()).isEqualTo(1);
+		assertThat(jsonRpcClient.getHealth().isAvailable()).isTrue();
+	}
+
+	@Test
+	public void getSelfResponsesOutOfOrderTest() {
+		WebSocketClient wsClient = mock(WebSocketClient.class);
+		when(wsClient.getStatus()).thenReturn(Observable.just(RadixClientStatus.OPEN));
+
+		ReplaySubject<String> messages = ReplaySubject.create();
+		when(wsClient.getMessages()).thenReturn(messages);
+		when(wsClient.connect()).thenReturn(Completable.complete());
+
+		JsonParser parser = new JsonParser();
+		Gson gson = RadixJson.getGson();
+
+		List<String> ids = new ArrayList<>();
+		doAnswer(invocation -> {
+			String msg = (String) invocation.getArguments()[0];
+			ids.add(parser.parse(msg).getAsJsonObject().get("id").getAsString());
+			return true;
+		}).when(wsClient).send(any());
+		RadixJsonRpcClient jsonRpcClient = new RadixJsonRpcClient(wsClient);
+
+		List<TestObserver<NodeRunnerData>> observers = IntStream.range(0, 10)
+			.mapToObj(i -> jsonRpcClient.getSelf().test())
+			.collect(Collectors.toList());
+
+		for (int i = ids.size() - 1; i >= 0; i--) {
+			JsonObject data = new JsonObject();
+			JsonObject system = new JsonObject();
+			JsonObject shards = new JsonObject();
+			shards.addProperty("low", i);
+			shards.addProperty("high", i);
+			system.add("shards", shards);
+			data.add("system", system);
+
+			JsonObject response = new JsonObject();
+			response.addProperty("id", ids.get(i));
+			response.add("result", data);
+
+			messages.onNext(gson.toJson(response));
+		}
+
+		for (int i = 0; i < observers.size(); i++) {
+			final long shard = i;
+			observers.get(i).assertValue(data -> data.getShards().equals(Shards.range(shard, shard)));
+		}
+	}
+
+	@Test
+	public void getAtomsBatchedTest() {
+		WebSocketClient wsClient = mock(WebSocketClient.class);
+		when(wsClient.getStatus()).thenReturn(Observable.just(RadixClientStatus.OPEN));
+
+		ReplaySubject<String> messages = ReplaySubject.create();
+		when(wsClient.getMessages()).thenReturn(messages);
+		when(wsClient.connect()).thenReturn(Completable.complete());
+
+		JsonParser parser = new JsonParser();
+		Gson gson = RadixJson.getGson();
+
+		List<JsonArray> batches = new ArrayList<>();
+		doAnswer(invocation -> {
+			String msg = (String) invocation.getArguments()[0];
+			JsonArray requests = parser.parse(msg).getAsJsonArray();
+			batches.add(requests);
+
+			JsonArray responses = new JsonArray();
+			for (JsonElement request : requests) {
+				JsonArray atoms = new JsonArray();
+				String hid = request.getAsJsonObject().get("params").getAsJsonObject().get("hid").getAsString();
+				Atom atom = new ApplicationPayloadAtom(hid, null, null, null, null, 1);
+				atoms.add(gson.toJsonTree(atom, Atom.class));
+
+				JsonObject response = new JsonObject();
+				response.addProperty("id", request.getAsJsonObject().get("id").getAsString());
+				response.add("result", atoms);
+				responses.add(response);
+			}
+
+			messages.onNext(gson.toJson(responses));
+			return true;
+		}).when(wsClient).send(any());
+		RadixJsonRpcClient jsonRpcClient = new RadixJsonRpcClient(wsClient, 60000, 3);
+
+		TestObserver<String> observer = new TestObserver<>();
+		jsonRpcClient.getAtomsByHid(Arrays.asList(new EUID(BigInteger.ONE), new EUID(BigInteger.TEN), new EUID(BigInteger.ZERO)))
+			.map(atom -> atom.getAsMessageAtom().getApplicationId())
+			.subscribe(observer);
+
+		assertThat(batches).hasSize(1);
+		observer.assertValueSet(Arrays.asList("1", "10", "0"));
+		observer.assertComplete();
+	}
+
 	@Test
 	public void getAtomDoesNotExistTest() {
 		WebSocketClient wsClient = mock(WebSocketClient.class);
@@ -217,6 +342,77 @@ public class RadixJsonRpcClientTest {
 		observer.assertValue(atom -> atom.getAsMessageAtom().getApplicationId().equals("Test"));
 	}
 
+	@Test
+	public void getAtomsResumeAfterConnectionLossTest() {
+		TestScheduler scheduler = new TestScheduler();
+		RxJavaPlugins.setComputationSchedulerHandler(s -> scheduler);
+
+		try {
+			WebSocketClient wsClient = mock(WebSocketClient.class);
+			when(wsClient.getStatus()).thenReturn(Observable.just(RadixClientStatus.OPEN));
+
+			ReplaySubject<String> firstConnection = ReplaySubject.create();
+			ReplaySubject<String> secondConnection = ReplaySubject.create();
+			AtomicReference<ReplaySubject<String>> connection = new AtomicReference<>(firstConnection);
+			when(wsClient.getMessages()).thenAnswer(invocation -> connection.get());
+			when(wsClient.connect()).thenReturn(Completable.complete());
+
+			JsonParser parser = new JsonParser();
+			Gson gson = RadixJson.getGson();
+
+			List<JsonObject> queries = new ArrayList<>();
+			doAnswer(invocation -> {
+				String msg = (String) invocation.getArguments()[0];
+				JsonObject jsonObject = parser.parse(msg).getAsJsonObject();
+				if (!jsonObject.get("method").getAsString().equals("Atoms.subscribe")) {
+					return true;
+				}
+
+				JsonObject requestParams = jsonObject.get("params").getAsJsonObject();
+				queries.add(requestParams.get("query").getAsJsonObject());
+
+				JsonObject response = new JsonObject();
+				response.addProperty("id", jsonObject.get("id").getAsString());
+				response.add("result", new JsonObject());
+				connection.get().onNext(gson.toJson(response));
+
+				JsonObject notification = new JsonObject();
+				notification.addProperty("method", "Atoms.subscribeUpdate");
+				JsonObject params = new JsonObject();
+				params.addProperty("subscriberId", requestParams.get("subscriberId").getAsString());
+				JsonArray atoms = new JsonArray();
+				atoms.add(gson.toJsonTree(
+					new ApplicationPayloadAtom("Test", null, null, null, null, queries.size()),
+					Atom.class
+				));
+				params.add("atoms", atoms);
+				notification.add("params", params);
+				connection.get().onNext(gson.toJson(notification));
+
+				return true;
+			}).when(wsClient).send(any());
+			RadixJsonRpcClient jsonRpcClient = new RadixJsonRpcClient(wsClient);
+
+			TestObserver<ApplicationPayloadAtom> observer = jsonRpcClient
+				.getAtoms(new AtomQuery<>(new EUID(BigInteger.ONE), ApplicationPayloadAtom.class))
+				.test();
+			observer.assertValueCount(1);
+
+			connection.set(secondConnection);
+			firstConnection.onError(new IOException());
+			scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+			observer.assertNoErrors();
+			observer.assertValueCount(2);
+			assertThat(queries).hasSize(2);
+			assertThat(queries.get(0).has("cursor")).isFalse();
+			assertThat(queries.get(1).get("cursor").getAsJsonObject().get("hid").getAsString())
+				.isEqualTo(observer.values().get(0).getHid().toString());
+		} finally {
+			RxJavaPlugins.reset();
+		}
+	}
+
 	@Test
 	public void getAtomsCancelTest() {
 		WebSocketClient wsClient = mock(WebSocketClient.class);
@@ -327,4 +523,82 @@ public class RadixJsonRpcClientTest {
 		observer.assertValueAt(observer.valueCount() - 1, update -> update.getState().equals(AtomSubmissionState.STORED));
 		observer.assertComplete();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Client of a node serving a given history through Ledger.getAtoms
+	 */
+	private RadixJsonRpcClient historyClient(List<Atom> history, boolean honoursPaging, List<JsonObject> queries) {
+		WebSocketClient wsClient = mock(WebSocketClient.class);
+		when(wsClient.getStatus()).thenReturn(Observable.just(RadixClientStatus.OPEN));
+
+		ReplaySubject<String> messages = ReplaySubject.create();
+		when(wsClient.getMessages()).thenReturn(messages);
+		when(wsClient.connect()).thenReturn(Completable.complete());
+
+		JsonParser parser = new JsonParser();
+		Gson gson = RadixJson.getGson();
+		List<String> hids = history.stream().map(atom -> atom.getHid().toString()).collect(Collectors.toList());
+
+		doAnswer(invocation -> {
+			JsonObject request = parser.parse((String) invocation.getArguments()[0]).getAsJsonObject();
+			JsonObject query = request.get("params").getAsJsonObject().get("query").getAsJsonObject();
+			queries.add(query);
+
+			String after = honoursPaging && query.has("cursor") ? query.get("cursor").getAsJsonObject().get("hid").getAsString() : null;
+			JsonArray atoms = new JsonArray();
+			history.stream()
+				.skip(after == null ? 0 : hids.indexOf(after) + 1)
+				.limit(honoursPaging ? query.get("limit").getAsInt() : Long.MAX_VALUE)
+				.forEach(atom -> atoms.add(gson.toJsonTree(atom, Atom.class)));
+
+			JsonObject response = new JsonObject();
+			response.addProperty("id", request.get("id").getAsString());
+			response.add("result", atoms);
+			messages.onNext(gson.toJson(response));
+			return true;
+		}).when(wsClient).send(any());
+		return new RadixJsonRpcClient(wsClient);
+	}
+
+	private static List<Atom> history(int size) {
+		return IntStream.rangeClosed(1, size)
+			.mapToObj(i -> new ApplicationPayloadAtom(String.valueOf(i), null, null, null, null, i))
+			.collect(Collectors.toList());
+	}
+
+	@Test
+	public void getAtomHistoryPagedTest() {
+		List<Atom> history = history(5);
+		List<JsonObject> queries = new ArrayList<>();
+		RadixJsonRpcClient jsonRpcClient = historyClient(history, true, queries);
+
+		AtomQuery<Atom> query = new AtomQuery<>(new EUID(BigInteger.ONE), Atom.class);
+		jsonRpcClient.getAtomHistory(query, 2, 2)
+			.map(atom -> atom.getAsMessageAtom().getApplicationId())
+			.test()
+			.assertValues("1", "2", "3", "4", "5")
+			.assertComplete();
+		assertThat(queries).hasSize(3);
+
+		jsonRpcClient.getAtomHistory(query.after(AtomCursor.after(history.get(1))), 2, 2)
+			.map(atom -> atom.getAsMessageAtom().getApplicationId())
+			.test()
+			.assertValues("3", "4", "5")
+			.assertComplete();
+	}
+
+	@Test
+	public void getAtomHistoryStopsWhenNodeIgnoresCursor() {
+		List<JsonObject> queries = new ArrayList<>();
+		RadixJsonRpcClient jsonRpcClient = historyClient(history(5), false, queries);
+
+		AtomQuery<Atom> query = new AtomQuery<>(Arrays.asList(new EUID(BigInteger.ONE), new EUID(BigInteger.TEN)), Atom.class);
+		jsonRpcClient.getAtomHistory(query, 2, 2)
+			.map(atom -> atom.getAsMessageAtom().getApplicationId())
+			.test()
+			.awaitDone(5, TimeUnit.SECONDS)
+			.assertValues("1", "2", "3", "4", "5")
+			.assertComplete();
+		assertThat(queries).hasSize(2);
+	}
+}
@@ -1,6 +1,9 @@
 package com.radixdlt.client.core.network;
 
 import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+import java.util.Collections;
 import java.util.stream.IntStream;
 import org.junit.Test;
 
@@ -24,4 +27,91 @@ public class RadixNetworkTest {
 				.assertValueAt(2, "http://3:8080/rpc")
 		);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testGetClientServingShard() {
+		RadixNetwork network = new RadixNetwork(() -> Observable.just(
+			new RadixPeer("1", false, 8080).data(new NodeRunnerData("1", 0, 10)),
+			new RadixPeer("2", false, 8080).data(new NodeRunnerData("2", 11, 20)),
+			new RadixPeer("3", false, 8080).data(new NodeRunnerData("3", 21, 30))
+		));
+
+		network.getRadixClients().test().assertValueCount(3);
+
+		IntStream.range(0, 10).forEach(i ->
+			network.getRadixClient(15L)
+				.map(RadixJsonRpcClient::getLocation)
+				.test()
+				.assertValue("http://2:8080/rpc")
+		);
+	}
+
+	@Test
+	public void testFailedPeerAvoided() {
+		RadixPeer first = new RadixPeer("1", false, 8080).data(new NodeRunnerData("1", 0, 10));
+		RadixPeer second = new RadixPeer("2", false, 8080).data(new NodeRunnerData("2", 0, 10));
+		RadixNetwork network = new RadixNetwork(() -> Observable.just(first, second));
+
+		network.getRadixClients().test().assertValueCount(2);
+		first.getRadixClient().getHealth().recordFailure();
+
+		IntStream.range(0, 10).forEach(i ->
+			network.getRadixClient(5L)
+				.map(RadixJsonRpcClient::getLocation)
+				.test()
+				.assertValue("http://2:8080/rpc")
+		);
+	}
+
+	@Test
+	public void testUntrustedPeerOnlyUsedWithoutTrustedPeer() {
+		RadixPeer first = new RadixPeer("1", false, 8080).data(new NodeRunnerData("1", 0, 10));
+		RadixPeer second = new RadixPeer("2", false, 8080).data(new NodeRunnerData("2", 0, 10));
+		RadixNetwork network = new RadixNetwork(() -> Observable.just(first, second));
+
+		network.getRadixClients().test().assertValueCount(2);
+		first.getRadixClient().getHealth().markUntrusted();
+
+		IntStream.range(0, 10).forEach(i ->
+			network.getRadixClient(5L)
+				.map(RadixJsonRpcClient::getLocation)
+				.test()
+				.assertValue("http://2:8080/rpc")
+		);
+
+		second.getRadixClient().getHealth().markUntrusted();
+		network.getRadixClient(5L)
+			.map(RadixJsonRpcClient::getLocation)
+			.test()
+			.assertValueCount(1)
+			.assertComplete();
+	}
+
+	@Test
+	public void testGetClientsServingShardsFromIndex() {
+		PublishSubject<RadixPeer> discovered = PublishSubject.create();
+		RadixPeer first = new RadixPeer("1", false, 8080).data(new NodeRunnerData("1", 0, 10));
+		RadixPeer second = new RadixPeer("2", false, 8080);
+		RadixNetwork network = new RadixNetwork(() -> discovered);
+		network.getRadixClients().test();
+
+		discovered.onNext(first);
+		discovered.onNext(second);
+		discovered.onNext(new RadixPeer("3", false, 8080).data(new NodeRunnerData("3", 11, 20)));
+
+		TestObserver<String> clients = network.getRadixClients(Collections.singleton(5L))
+			.map(RadixJsonRpcClient::getLocation)
+			.test();
+		clients.assertValues("http://1:8080/rpc");
+
+		// Peers are matched once their shards are known
+		second.data(new NodeRunnerData("2", 5, 5));
+		clients.assertValues("http://1:8080/rpc", "http://2:8080/rpc");
+
+		network.removePeer(first);
+		network.getRadixClients(Collections.singleton(5L))
+			.map(RadixJsonRpcClient::getLocation)
+			.test()
+			.assertValues("http://2:8080/rpc");
+	}
+}
@@ -0,0 +1,61 @@
+package com.radixdlt.client.core.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.client.core.atoms.Shards;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class ShardRangeIndexTest {
+
+	@Test
+	public void testOverlappingRanges() {
+		ShardRangeIndex<String> index = new ShardRangeIndex<>();
+		index.add(Shards.range(-100, 100), "a");
+		index.add(Shards.range(0, 200), "b");
+		index.add(Shards.range(150, 150), "c");
+
+		assertThat(index.get(-101)).isEmpty();
+		assertThat(index.get(-100)).containsExactly("a");
+		assertThat(index.get(0)).containsExactly("a", "b");
+		assertThat(index.get(100)).containsExactly("a", "b");
+		assertThat(index.get(101)).containsExactly("b");
+		assertThat(index.get(150)).containsExactly("b", "c");
+		assertThat(index.get(151)).containsExactly("b");
+		assertThat(index.get(201)).isEmpty();
+	}
+
+	@Test
+	public void testMultipleShards() {
+		ShardRangeIndex<String> index = new ShardRangeIndex<>();
+		index.add(Shards.range(0, 10), "a");
+		index.add(Shards.range(20, 30), "b");
+
+		assertThat(index.get(Arrays.asList(5L, 25L, 15L))).containsExactlyInAnyOrder("a", "b");
+	}
+
+	@Test
+	public void testFullRange() {
+		ShardRangeIndex<String> index = new ShardRangeIndex<>();
+		index.add(Shards.range(Long.MIN_VALUE, Long.MAX_VALUE), "a");
+		index.add(Shards.range(Long.MAX_VALUE, Long.MAX_VALUE), "b");
+
+		assertThat(index.get(Long.MIN_VALUE)).containsExactly("a");
+		assertThat(index.get(Long.MAX_VALUE)).containsExactly("a", "b");
+	}
+
+	@Test
+	public void testRemove() {
+		ShardRangeIndex<String> index = new ShardRangeIndex<>();
+		index.add(Shards.range(0, 100), "a");
+		index.add(Shards.range(50, 150), "b");
+		index.remove(Shards.range(50, 150), "b");
+
+		assertThat(index.get(49)).containsExactly("a");
+		assertThat(index.get(75)).containsExactly("a");
+		assertThat(index.get(125)).isEmpty();
+
+		index.remove(Shards.range(0, 100), "a");
+		assertThat(index.get(75)).isEmpty();
+	}
+}
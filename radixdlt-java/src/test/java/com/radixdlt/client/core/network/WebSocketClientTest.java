@@ -1,17 +1,24 @@
 package com.radixdlt.client.core.network;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import io.reactivex.observers.TestObserver;
 import java.io.IOException;
+import java.util.Collections;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
+import okio.ByteString;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 public class WebSocketClientTest {
 	@Test
@@ -95,4 +102,68 @@ public class WebSocketClientTest {
 
 		testObserver.assertFailure(IOException.class, "hello");
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testCompressedMessages() throws Exception {
+		OkHttpClient okHttpClient = mock(OkHttpClient.class);
+		WebSocket webSocket = mock(WebSocket.class);
+		Request request = mock(Request.class);
+		Response response = mock(Response.class);
+
+		final String message = "{\"atoms\":[" + String.join(",", Collections.nCopies(50, "{\"serializer\":\"BASE64\"}")) + "]}";
+		final ByteString frame = new DeflateFrameCodec().encode(message);
+
+		WebSocketClient client = new WebSocketClient(() -> okHttpClient, request, true);
+		doAnswer(invocation -> {
+			WebSocketListener listener = (WebSocketListener) invocation.getArguments()[1];
+			listener.onOpen(webSocket, response);
+			listener.onMessage(webSocket, frame);
+			return webSocket;
+		}).when(okHttpClient).newWebSocket(any(), any());
+		when(webSocket.send(any(ByteString.class))).thenReturn(true);
+
+		TestObserver<String> testObserver = TestObserver.create();
+		client.getMessages().subscribe(testObserver);
+		client.connect().subscribe();
+		client.send(message);
+
+		testObserver.assertValue(message);
+
+		ArgumentCaptor<ByteString> sent = ArgumentCaptor.forClass(ByteString.class);
+		verify(webSocket).send(sent.capture());
+		assertThat(new DeflateFrameCodec().decode(sent.getValue())).isEqualTo(message);
+
+		WebSocketMetrics metrics = client.getMetrics();
+		assertThat(metrics.getBytesReceived()).isEqualTo(message.length());
+		assertThat(metrics.getWireBytesReceived()).isEqualTo(frame.size());
+		assertThat(metrics.getWireBytesSent()).isLessThan(metrics.getBytesSent());
+	}
+
+	@Test
+	public void testCompressionOffByDefault() {
+		OkHttpClient okHttpClient = mock(OkHttpClient.class);
+		WebSocket webSocket = mock(WebSocket.class);
+		Request request = new Request.Builder().url("ws://localhost:8080/rpc").build();
+		Response response = mock(Response.class);
+
+		WebSocketClient client = new WebSocketClient(() -> okHttpClient, request);
+		doAnswer(invocation -> {
+			WebSocketListener listener = (WebSocketListener) invocation.getArguments()[1];
+			listener.onOpen(webSocket, response);
+			listener.onMessage(webSocket, new DeflateFrameCodec().encode("compressed"));
+			listener.onMessage(webSocket, "plain");
+			return webSocket;
+		}).when(okHttpClient).newWebSocket(any(), any());
+		when(webSocket.send(any(String.class))).thenReturn(true);
+
+		TestObserver<String> testObserver = TestObserver.create();
+		client.getMessages().subscribe(testObserver);
+		client.connect().subscribe();
+		client.send("hello");
+
+		testObserver.assertValue("plain");
+		verify(webSocket).send("hello");
+		verify(webSocket, never()).send(any(ByteString.class));
+		assertThat(new RadixPeer("localhost", false, 8080).isCompressed()).isFalse();
+	}
+}